@@ -0,0 +1,135 @@
+// AllocationLedger.java - Bytes allocated per subsystem per scene, from the thread allocation counters
+package projectCG;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+class AllocationLedger {
+    // Off unless -Dtaobin.allocations=true; then every mark and charge is one counter read
+    private static final AllocationLedger shared = new AllocationLedger(Boolean.getBoolean("taobin.allocations"));
+
+    enum Subsystem {
+        SKY,
+        CLOUDS,
+        WEATHER,
+        MACHINE,
+        ITEMS,
+        PARTICLES,
+        HUD,
+        OTHER
+    }
+
+    private static final Subsystem[] SUBSYSTEMS = Subsystem.values();
+
+    // Totals for one scene, plus how many frames they were spread over. Scenes charge their own
+    // account, so a preload warm-up or transition capture lands on the scene that drew it
+    final class SceneAllocations {
+        final String scene;
+        final LongAdder[] bytes = new LongAdder[Subsystem.values().length];
+        final LongAdder frames = new LongAdder();
+
+        SceneAllocations(String scene) {
+            this.scene = scene;
+            for (int i = 0; i < bytes.length; i++) {
+                bytes[i] = new LongAdder();
+            }
+        }
+
+        long bytes(Subsystem subsystem) {
+            return bytes[subsystem.ordinal()].sum();
+        }
+
+        long frames() {
+            return frames.sum();
+        }
+
+        long mark() {
+            return AllocationLedger.this.mark();
+        }
+
+        // Same chaining as AllocationLedger.charge, but always into this scene
+        long charge(Subsystem subsystem, long mark) {
+            if (threads == null)
+                return 0;
+            long now = threads.getCurrentThreadAllocatedBytes();
+            bytes[subsystem.ordinal()].add(now - mark);
+            return now;
+        }
+    }
+
+    private final com.sun.management.ThreadMXBean threads;
+    private final Map<String, SceneAllocations> scenes = new ConcurrentHashMap<>();
+    private volatile SceneAllocations current = new SceneAllocations("");
+
+    AllocationLedger(boolean enabled) {
+        this.threads = enabled ? ThreadAllocation.threads() : null;
+        if (enabled && threads == null) {
+            System.err.println("Allocation accounting is not supported by this JVM");
+        }
+        if (threads != null) {
+            Runtime.getRuntime().addShutdownHook(new Thread(this::printReport, "allocation-report"));
+        }
+    }
+
+    static AllocationLedger shared() {
+        return shared;
+    }
+
+    boolean isEnabled() {
+        return threads != null;
+    }
+
+    // Later charges go to this scene; called by the host at every switch
+    void sceneChanged(String scene) {
+        if (threads != null) {
+            current = scenes.computeIfAbsent(scene, SceneAllocations::new);
+        }
+    }
+
+    void framePresented() {
+        if (threads != null) {
+            current.frames.increment();
+        }
+    }
+
+    // Start of a bracketed section on the calling thread
+    long mark() {
+        return threads != null ? threads.getCurrentThreadAllocatedBytes() : 0;
+    }
+
+    // Charges what this thread allocated since the mark to the scene on screen and returns a new mark,
+    // so phases can be chained:
+    //   long mark = allocations.mark(); drawSky(); mark = allocations.charge(Subsystem.SKY, mark); ...
+    long charge(Subsystem subsystem, long mark) {
+        return current.charge(subsystem, mark);
+    }
+
+    // The account a scene charges its own work to, whichever thread runs it
+    SceneAllocations forScene(String scene) {
+        return scenes.computeIfAbsent(scene, SceneAllocations::new);
+    }
+
+    SceneAllocations get(String scene) {
+        return scenes.get(scene);
+    }
+
+    void printReport() {
+        if (threads == null || scenes.isEmpty())
+            return;
+        StringBuilder report = new StringBuilder("Allocations per scene (KB per frame, total MB):\n");
+        for (SceneAllocations allocations : new TreeMap<>(scenes).values()) {
+            long frames = Math.max(1, allocations.frames());
+            report.append(String.format("  %s, %d frames%n", allocations.scene, allocations.frames()));
+            for (Subsystem subsystem : SUBSYSTEMS) {
+                long bytes = allocations.bytes(subsystem);
+                if (bytes == 0)
+                    continue;
+                report.append(String.format("    %-10s %9.1f KB/frame %9.1f MB%n", subsystem.name().toLowerCase(),
+                        bytes / 1024.0 / frames, bytes / (1024.0 * 1024.0)));
+            }
+        }
+        System.out.print(report);
+    }
+}
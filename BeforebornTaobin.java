@@ -4,29 +4,25 @@ package projectCG;
 import java.awt.BasicStroke;
 import java.awt.Color;
 import java.awt.GradientPaint;
-import java.awt.Graphics;
 import java.awt.Graphics2D;
 import java.awt.RenderingHints;
-import java.awt.event.ActionEvent;
-import java.awt.event.ActionListener;
-import java.awt.geom.AffineTransform;
 import java.awt.geom.Ellipse2D;
 import java.awt.geom.QuadCurve2D;
-import java.awt.image.BufferedImage;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Random;
 import java.util.concurrent.CopyOnWriteArrayList;
 
 import javax.swing.JFrame;
 import javax.swing.JOptionPane;
-import javax.swing.JPanel;
 import javax.swing.SwingUtilities;
-import javax.swing.Timer;
 
-class BeforebornTaobin extends JPanel implements ActionListener {
-    private Timer timer;
-    private static JFrame frame;
+class BeforebornTaobin implements Scene {
+    private SceneHost host;
+    private int width = 600;
+    private int height = 600;
+    private final Color background = new Color(135, 206, 235);
 
     // Animation variables with floating point precision - SPEED UP VALUES
     private double carX = -150.0;
@@ -44,15 +40,17 @@ class BeforebornTaobin extends JPanel implements ActionListener {
     private double rayAngle = 0.0;
 
     // Enhanced animation timing
-    private final double TARGET_FPS = 60.0;
-    private final int TIMER_DELAY = (int) (1000.0 / TARGET_FPS);
-    private long lastFrameTime = System.nanoTime();
-    private double deltaTime = 0.0;
-
-    // Flash effect variables - FASTER TRANSITION
-    private boolean isFlashing = false;
-    private int flashTimer = 0;
-    private double flashIntensity = 0.0;
+    private final FrameClock clock = FrameClock.shared();
+    private final TimerWheel timers = TimerWheel.shared();
+    private final AllocationLedger.SceneAllocations allocations =
+            AllocationLedger.shared().forScene(getClass().getSimpleName());
+    private final TraceRecorder tracer = TraceRecorder.shared();
+    private SceneDirector<VendingFallFromSky> nextScenePreload;
+    private double deltaTime = FrameClock.STEP_SECONDS;
+    private double prevCarX = carX;
+
+    // Flash into the next scene - FASTER TRANSITION
+    private static final int FLASH_STEPS = 25; // Reduced from 90
     private boolean sceneTransitioned = false;
 
     // Smooth sun and cloud animation variables - FASTER MOVEMENT
@@ -93,19 +91,11 @@ class BeforebornTaobin extends JPanel implements ActionListener {
     private List<CrashParticle> crashParticles = new CopyOnWriteArrayList<>();
     private Random random = new Random();
 
-    // Double buffering for smoother rendering
-    private BufferedImage backBuffer;
-    private Graphics2D backBufferGraphics;
+    // Debris uses a small fixed palette so every colour's rotated frames stay cached
+    private final Color[] crashColors = new Color[8];
+    private final RotationSpriteCache crashSprites = new RotationSpriteCache();
 
     // Smooth interpolation helpers
-    private double easeInOutQuad(double t) {
-        if (t < 0)
-            t = 0;
-        if (t > 1)
-            t = 1;
-        return t < 0.5 ? 2 * t * t : 1 - Math.pow(-2 * t + 2, 2) / 2;
-    }
-
     private double lerp(double a, double b, double t) {
         if (t < 0)
             t = 0;
@@ -115,89 +105,47 @@ class BeforebornTaobin extends JPanel implements ActionListener {
     }
 
     public BeforebornTaobin() {
-        timer = new Timer(TIMER_DELAY, this);
-        setBackground(new Color(135, 206, 235));
-        setDoubleBuffered(true);
         carSpeed = 15.0; // Increased from 2.5 - MUCH FASTER CAR
-    }
-
-    // Fixed constructor that accepts JFrame parameter
-    public BeforebornTaobin(JFrame parentFrame) {
-        this();
-        setFrame(parentFrame);
-    }
-
-    public static void setFrame(JFrame f) {
-        frame = f;
-    }
 
-    public static JFrame getFrame() {
-        return frame;
-    }
-
-    public void startAnimation() {
-        if (timer != null && !timer.isRunning()) {
-            timer.start();
+        for (int i = 0; i < crashColors.length; i++) {
+            crashColors[i] = new Color(
+                    Math.min(255, Math.max(0, 180 + random.nextInt(75))),
+                    Math.min(255, Math.max(0, random.nextInt(120))),
+                    Math.min(255, Math.max(0, random.nextInt(60))));
         }
     }
 
-    public void stopAnimation() {
-        if (timer != null) {
-            timer.stop();
-        }
-        // Proper resource cleanup
-        cleanupResources();
+    @Override
+    public void init(SceneHost host) {
+        this.host = host;
+        this.width = host.getSceneWidth();
+        this.height = host.getSceneHeight();
     }
 
-    private void cleanupResources() {
+    @Override
+    public void dispose() {
         try {
-            if (backBufferGraphics != null) {
-                backBufferGraphics.dispose();
-                backBufferGraphics = null;
-            }
-            if (backBuffer != null) {
-                backBuffer.flush();
-                backBuffer = null;
-            }
             // Clear particle collections
             portalParticles.clear();
             crashParticles.clear();
+            crashSprites.clear();
         } catch (Exception e) {
             System.err.println("Error during cleanup: " + e.getMessage());
         }
     }
 
     @Override
-    public void addNotify() {
-        super.addNotify();
-        createBackBuffer();
-        startAnimation();
+    public void countEntities(Map<String, Integer> counts) {
+        counts.put("portal", portalParticles.size());
+        counts.put("crash", crashParticles.size());
     }
 
-    @Override
-    public void removeNotify() {
-        stopAnimation();
-        super.removeNotify();
+    private int getWidth() {
+        return width;
     }
 
-    private void createBackBuffer() {
-        try {
-            if (getWidth() > 0 && getHeight() > 0) {
-                // Clean up old buffer
-                if (backBufferGraphics != null) {
-                    backBufferGraphics.dispose();
-                }
-
-                backBuffer = new BufferedImage(getWidth(), getHeight(), BufferedImage.TYPE_INT_ARGB);
-                backBufferGraphics = backBuffer.createGraphics();
-                backBufferGraphics.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
-                backBufferGraphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
-                backBufferGraphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION,
-                        RenderingHints.VALUE_INTERPOLATION_BILINEAR);
-            }
-        } catch (Exception e) {
-            System.err.println("Error creating back buffer: " + e.getMessage());
-        }
+    private int getHeight() {
+        return height;
     }
 
     // Helper methods with null checks
@@ -283,87 +231,69 @@ class BeforebornTaobin extends JPanel implements ActionListener {
     }
 
     @Override
-    protected void paintComponent(Graphics g) {
-        if (g == null)
-            return;
+    public void render(Graphics2D g2d, int width, int height) {
+        this.width = width;
+        this.height = height;
 
         try {
-            super.paintComponent(g);
-
-            // Create back buffer if needed
-            if (backBuffer == null || backBuffer.getWidth() != getWidth() || backBuffer.getHeight() != getHeight()) {
-                createBackBuffer();
-            }
-
-            if (backBufferGraphics == null)
-                return;
-
             // Clear back buffer
-            backBufferGraphics.setColor(getBackground());
-            backBufferGraphics.fillRect(0, 0, getWidth(), getHeight());
+            g2d.setColor(background);
+            g2d.fillRect(0, 0, getWidth(), getHeight());
 
             // Enhanced rendering hints
-            backBufferGraphics.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
-            backBufferGraphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            g2d.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
 
             // Draw to back buffer with error handling
-            drawAnimatedBackground(backBufferGraphics);
-            drawRoad(backBufferGraphics);
-            drawVendingMachine(backBufferGraphics);
+            long mark = allocations.mark();
+            long span = tracer.begin();
+            drawAnimatedBackground(g2d);
+            drawRoad(g2d);
+            mark = allocations.charge(AllocationLedger.Subsystem.SKY, mark);
+            span = tracer.end("BeforebornTaobin.render.sky", span);
+            drawVendingMachine(g2d);
+            mark = allocations.charge(AllocationLedger.Subsystem.MACHINE, mark);
+            span = tracer.end("BeforebornTaobin.render.machine", span);
 
-            if (!transitionComplete && !sceneTransitioned) {
-                drawCar(backBufferGraphics);
+            if (!transitionComplete) {
+                drawCar(g2d);
             }
+            mark = allocations.charge(AllocationLedger.Subsystem.OTHER, mark);
+            span = tracer.end("BeforebornTaobin.render.other", span);
 
-            drawCrashParticles(backBufferGraphics);
+            drawCrashParticles(g2d);
 
             if (showPortal) {
-                drawPortal(backBufferGraphics);
-                drawPortalParticles(backBufferGraphics);
-            }
-
-            if (isFlashing) {
-                drawFlashEffect(backBufferGraphics);
-            }
-
-            // Draw back buffer to screen
-            Graphics2D g2d = (Graphics2D) g;
-            g2d.drawImage(backBuffer, 0, 0, null);
-
-            // Handle scene transition - MUCH FASTER
-            if (crashed && crashTimer >= 30 && !sceneTransitioned) { // Reduced from 180
-                startFlashTransition();
+                drawPortal(g2d);
+                drawPortalParticles(g2d);
             }
+            allocations.charge(AllocationLedger.Subsystem.PARTICLES, mark);
+            tracer.end("BeforebornTaobin.render.particles", span);
         } catch (Exception e) {
-            System.err.println("Error in paintComponent: " + e.getMessage());
+            System.err.println("Error in render: " + e.getMessage());
             e.printStackTrace();
         }
     }
 
     // FIXED transition method with proper error handling
     private void transitionToVendingMachine() {
+        if (sceneTransitioned)
+            return;
+        sceneTransitioned = true;
+
         try {
-            if (frame != null) {
+            if (host != null) {
                 System.out.println("Starting transition to VendingFallFormSky");
 
-                // Stop current animation first
-                stopAnimation();
-
-                // Create next scene and set frame reference
-                VendingFallFromSky nextScene = new VendingFallFromSky();
-                VendingFallFromSky.setFrame(frame); // Set frame reference for next scene
-
-                // Change content pane
-                frame.setContentPane(nextScene);
-                frame.revalidate();
-                frame.repaint();
-
-                // Start next scene animation
-                nextScene.startAnimation();
+                // Next scene was built and warmed in the background during the drive;
+                // the host flashes from our last frame into its first one
+                VendingFallFromSky nextScene = nextScenePreload != null ? nextScenePreload.take()
+                        : new VendingFallFromSky();
+                host.transitionTo(nextScene, TransitionCompositor.Style.FLASH, FLASH_STEPS);
 
                 System.out.println("Transition complete!");
             } else {
-                System.err.println("Frame reference is null - cannot transition");
+                System.err.println("Scene host is null - cannot transition");
             }
         } catch (Exception e) {
             System.err.println("Could not transition to next scene: " + e.getMessage());
@@ -371,42 +301,54 @@ class BeforebornTaobin extends JPanel implements ActionListener {
         }
     }
 
+    // One fixed 1/60 s simulation step
     @Override
-    public void actionPerformed(ActionEvent e) {
-        try {
-            // Calculate smooth delta time with bounds checking
-            long currentTime = System.nanoTime();
-            deltaTime = (currentTime - lastFrameTime) / 1_000_000_000.0;
-            lastFrameTime = currentTime;
-            deltaTime = Math.min(Math.max(deltaTime, 0.001), 1.0 / 15.0); // Cap at 15-1000 FPS
+    public void update() {
+        // Start preloading once the host is laid out, so the next scene is warmed at its size
+        if (nextScenePreload == null) {
+            nextScenePreload = SceneDirector.preload("VendingFallFromSky", host, VendingFallFromSky::new);
+        }
 
-            sceneTimer++;
+        deltaTime = FrameClock.STEP_SECONDS;
+        prevCarX = carX;
+        long mark = allocations.mark();
+        long span = tracer.begin();
 
-            if (!crashed) {
-                carX += carSpeed * deltaTime * 60.0;
-                wheelRotation += deltaTime * 25.0; // Increased wheel rotation speed
-
-                // Check collision with bounds checking
-                if (carX + 120 >= vendingMachineX - 5 && carX <= vendingMachineX + 85 && !crashed) {
-                    crashed = true;
-                    vendingMachineHit = true;
-                    crashTimer = 0;
-                    machineShakeIntensity = 25.0; // Increased shake intensity
-
-                    // Create crash particles with limit
-                    createCrashParticles();
-                }
-            } else {
-                crashTimer++;
-                updateCrashedState();
-            }
+        sceneTimer++;
+
+        if (!crashed) {
+            carX += carSpeed * deltaTime * 60.0;
+            wheelRotation += deltaTime * 25.0; // Increased wheel rotation speed
 
-            // Update particles safely
-            updateParticles();
-            repaint();
-        } catch (Exception ex) {
-            System.err.println("Error in actionPerformed: " + ex.getMessage());
+            // Check collision with bounds checking
+            if (carX + 120 >= vendingMachineX - 5 && carX <= vendingMachineX + 85 && !crashed) {
+                crashed = true;
+                vendingMachineHit = true;
+                crashTimer = 0;
+                machineShakeIntensity = 25.0; // Increased shake intensity
+
+                // Create crash particles with limit
+                createCrashParticles();
+
+                // Portal opens shortly after impact, then the flash leads into the next scene
+                timers.schedule(11, this::openPortal); // Reduced from 120
+                timers.schedule(30, this::transitionToVendingMachine); // Reduced from 180
+            }
+        } else {
+            crashTimer++;
+            updateCrashedState();
         }
+
+        mark = allocations.charge(AllocationLedger.Subsystem.OTHER, mark);
+        span = tracer.end("BeforebornTaobin.update.other", span);
+
+        // Update particles safely
+        updateParticles();
+        mark = allocations.charge(AllocationLedger.Subsystem.PARTICLES, mark);
+        span = tracer.end("BeforebornTaobin.update.particles", span);
+        updateBackground();
+        allocations.charge(AllocationLedger.Subsystem.SKY, mark);
+        tracer.end("BeforebornTaobin.update.sky", span);
     }
 
     private void createCrashParticles() {
@@ -418,10 +360,7 @@ class BeforebornTaobin extends JPanel implements ActionListener {
                 particle.y = roadY - 20 + (random.nextDouble() - 0.5) * 50;
                 particle.vx = (random.nextDouble() - 0.5) * 25; // Increased velocity
                 particle.vy = (random.nextDouble() - 0.5) * 20 - 8; // Increased velocity
-                particle.color = new Color(
-                        Math.min(255, Math.max(0, 180 + random.nextInt(75))),
-                        Math.min(255, Math.max(0, random.nextInt(120))),
-                        Math.min(255, Math.max(0, random.nextInt(60))));
+                particle.color = crashColors[random.nextInt(crashColors.length)];
                 particle.life = 0.5 + random.nextDouble() * 0.5; // Reduced life
                 particle.maxLife = particle.life;
                 particle.rotation = random.nextDouble() * Math.PI * 2;
@@ -447,11 +386,6 @@ class BeforebornTaobin extends JPanel implements ActionListener {
             }
 
             // Portal effect - FASTER PORTAL
-            if (crashTimer > 10 && !showPortal) { // Reduced from 120
-                showPortal = true;
-                portalSize = 0;
-            }
-
             if (showPortal) {
                 portalSize += deltaTime * 200.0; // Increased from 80.0
                 portalRotation += deltaTime * 5.0; // Increased rotation speed
@@ -525,41 +459,10 @@ class BeforebornTaobin extends JPanel implements ActionListener {
         }
     }
 
-    private void startFlashTransition() {
-        if (!isFlashing) {
-            isFlashing = true;
-            flashTimer = 0;
-            flashIntensity = 0.0;
-        }
-    }
-
-    private void drawFlashEffect(Graphics2D g2d) {
-        if (g2d == null)
-            return;
-
-        try {
-            // MUCH FASTER FLASH TRANSITION
-            if (flashTimer < 10) { // Reduced from 30
-                double progress = Math.max(0, Math.min(1, flashTimer / 10.0));
-                flashIntensity = easeInOutQuad(progress) * 255;
-            } else if (flashTimer < 15) { // Reduced from 60
-                flashIntensity = 255;
-            } else if (flashTimer < 25) { // Reduced from 90
-                double progress = Math.max(0, Math.min(1, (25 - flashTimer) / 10.0));
-                flashIntensity = easeInOutQuad(progress) * 255;
-            } else {
-                isFlashing = false;
-                sceneTransitioned = true;
-                transitionToVendingMachine(); // Fixed method call
-                return;
-            }
-
-            // Flash overlay
-            g2d.setColor(new Color(255, 255, 255, (int) Math.max(0, Math.min(255, flashIntensity))));
-            g2d.fillRect(0, 0, getWidth(), getHeight());
-            flashTimer++;
-        } catch (Exception e) {
-            System.err.println("Error drawing flash effect: " + e.getMessage());
+    private void openPortal() {
+        if (!showPortal) {
+            showPortal = true;
+            portalSize = 0;
         }
     }
 
@@ -568,28 +471,6 @@ class BeforebornTaobin extends JPanel implements ActionListener {
             return;
 
         try {
-            // Smooth time-based animation - FASTER ANIMATION
-            time += deltaTime * 8.0; // Increased from 2.0
-            rayAngle += deltaTime * 180.0; // Increased from 45.0
-            sunPulse = Math.sin(time * 3.0) * 0.3 + 1.0; // Faster pulse
-            sunBobOffset = Math.sin(time * 2.0) * 12.0; // Increased bob
-
-            // Smooth sun movement with boundary bouncing - FASTER MOVEMENT
-            sunX += sunSpeedX * deltaTime * 60.0; // Increased multiplier
-            sunY += sunSpeedY * deltaTime * 60.0 + sunBobOffset * deltaTime * 1.0;
-
-            if (sunX > 550 || sunX < 50) {
-                sunSpeedX = -sunSpeedX;
-                sunX = Math.max(50, Math.min(550, sunX));
-            }
-            if (sunY > 120 || sunY < 30) {
-                sunSpeedY = -sunSpeedY;
-                sunY = Math.max(30, Math.min(120, sunY));
-            }
-
-            // Smooth cloud movement
-            updateClouds();
-
             // Draw clouds and sun
             drawAnimatedCloud(g2d, cloud1X, cloud1Y + cloud1Bob, 1.0, time);
             drawAnimatedCloud(g2d, cloud2X, cloud2Y + cloud2Bob, 0.8, time + 1.0);
@@ -600,6 +481,30 @@ class BeforebornTaobin extends JPanel implements ActionListener {
         }
     }
 
+    private void updateBackground() {
+        // Smooth time-based animation - FASTER ANIMATION
+        time += deltaTime * 8.0; // Increased from 2.0
+        rayAngle += deltaTime * 180.0; // Increased from 45.0
+        sunPulse = Math.sin(time * 3.0) * 0.3 + 1.0; // Faster pulse
+        sunBobOffset = Math.sin(time * 2.0) * 12.0; // Increased bob
+
+        // Smooth sun movement with boundary bouncing - FASTER MOVEMENT
+        sunX += sunSpeedX * deltaTime * 60.0; // Increased multiplier
+        sunY += sunSpeedY * deltaTime * 60.0 + sunBobOffset * deltaTime * 1.0;
+
+        if (sunX > 550 || sunX < 50) {
+            sunSpeedX = -sunSpeedX;
+            sunX = Math.max(50, Math.min(550, sunX));
+        }
+        if (sunY > 120 || sunY < 30) {
+            sunSpeedY = -sunSpeedY;
+            sunY = Math.max(30, Math.min(120, sunY));
+        }
+
+        // Smooth cloud movement
+        updateClouds();
+    }
+
     private void updateClouds() {
         // FASTER CLOUD MOVEMENT
         cloud1X += cloud1Speed * deltaTime * 60.0; // Increased multiplier
@@ -814,7 +719,8 @@ class BeforebornTaobin extends JPanel implements ActionListener {
             g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
             g2d.setStroke(new BasicStroke(2));
 
-            double baseX = carX;
+            // Render between the last two steps so the car glides at any refresh rate
+            double baseX = crashed ? carX : clock.interpolate(prevCarX, carX);
             double baseY = roadY - 45;
 
             if (crashed && machineShakeIntensity > 0) {
@@ -978,19 +884,11 @@ class BeforebornTaobin extends JPanel implements ActionListener {
             for (CrashParticle particle : new ArrayList<>(crashParticles)) {
                 if (particle != null && particle.life > 0) {
                     double alpha = Math.max(0, particle.life / particle.maxLife);
-                    g2d.setColor(new Color(
-                            Math.min(255, Math.max(0, particle.color.getRed())),
-                            Math.min(255, Math.max(0, particle.color.getGreen())),
-                            Math.min(255, Math.max(0, particle.color.getBlue())),
-                            Math.min(255, Math.max(0, (int) (255 * alpha)))));
-
-                    // Rotated square particle
-                    AffineTransform oldTransform = g2d.getTransform();
-                    g2d.translate(particle.x, particle.y);
-                    g2d.rotate(particle.rotation);
-                    int size = (int) Math.max(1, particle.size);
-                    g2d.fillRect(-size / 2, -size / 2, size, size);
-                    g2d.setTransform(oldTransform);
+
+                    // Rotated square particle from the pre-rotated frame cache
+                    crashSprites.draw(g2d, RotationSpriteCache.Shape.SQUARE, particle.color,
+                            (int) Math.max(1, particle.size), false, particle.rotation, particle.x, particle.y,
+                            alpha);
                 }
             }
         } catch (Exception e) {
@@ -1000,21 +898,25 @@ class BeforebornTaobin extends JPanel implements ActionListener {
 
     // FIXED main method
     public static void main(String[] args) {
+        StartupProfiler.mainStarted();
         SwingUtilities.invokeLater(() -> {
             try {
-                frame = new JFrame();
+                JFrame frame = new JFrame();
                 frame.setTitle("立方体の自動販売機 - Fast Lofi Cubic Vending Machine");
                 frame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
                 frame.setSize(600, 600);
 
-                BeforebornTaobin scene1 = new BeforebornTaobin(frame);
-                frame.setContentPane(scene1);
+                // One host panel for the whole show; each scene hands over to the next inside it
+                SceneHost host = new SceneHost(600, 600, new BeforebornTaobin());
+                frame.setContentPane(host);
                 frame.setLocationRelativeTo(null);
                 frame.setVisible(true);
                 frame.setResizable(false);
+                StartupProfiler.frameVisible();
 
                 // Add a subtle window title animation - FASTER
-                Timer titleTimer = new Timer(1000, new ActionListener() { // Reduced from 2000
+                // Runs on the shared frame scheduler; pipelined scenes tick it off the EDT
+                TimerWheel.shared().scheduleRepeating(TimerWheel.millisToSteps(1000), new Runnable() { // Reduced from 2000
                     private String[] titles = {
                             "立方体の自動販売機 - Fast Lofi Cubic Vending Machine",
                             "TAO BIN - Speed Beverage Dispenser ⚡",
@@ -1024,12 +926,12 @@ class BeforebornTaobin extends JPanel implements ActionListener {
                     private int titleIndex = 0;
 
                     @Override
-                    public void actionPerformed(ActionEvent e) {
+                    public void run() {
                         titleIndex = (titleIndex + 1) % titles.length;
-                        frame.setTitle(titles[titleIndex]);
+                        String title = titles[titleIndex];
+                        SwingUtilities.invokeLater(() -> frame.setTitle(title));
                     }
                 });
-                titleTimer.start();
             } catch (Exception e) {
                 e.printStackTrace();
                 JOptionPane.showMessageDialog(null, "Error starting application: " + e.getMessage());
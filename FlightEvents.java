@@ -0,0 +1,123 @@
+// FlightEvents.java - JDK Flight Recorder events for frames, physics, dispenses, weather and scene cuts
+package projectCG;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+import jdk.jfr.Timespan;
+
+// Nothing is written unless a recording is running, e.g. a continuous one on a kiosk:
+//   -XX:StartFlightRecording:disk=true,maxage=1h,filename=taobin.jfr
+// The per-frame events only commit above their threshold, so a normal frame costs a few
+// field stores; lower the thresholds in the recording settings to see every frame.
+final class FlightEvents {
+    private FlightEvents() {
+    }
+
+    @Name("taobin.FrameRendered")
+    @Label("Frame Rendered")
+    @Category({ "Taobin", "Frames" })
+    @Description("A frame whose render and present took longer than the threshold")
+    @Threshold("12 ms")
+    @StackTrace(false)
+    static final class FrameRendered extends Event {
+        @Label("Scene")
+        String scene;
+
+        @Label("Update Time")
+        @Description("Simulation steps run for this frame")
+        @Timespan(Timespan.NANOSECONDS)
+        long updateTime;
+
+        @Label("Render Time")
+        @Timespan(Timespan.NANOSECONDS)
+        long renderTime;
+
+        @Label("Entities")
+        int entityCount;
+
+        @Label("Entity Counts")
+        String entities;
+    }
+
+    @Name("taobin.PhysicsStep")
+    @Label("Physics Step")
+    @Category({ "Taobin", "Physics" })
+    @Description("One update and collision pass over the falling bodies")
+    @Threshold("2 ms")
+    @StackTrace(false)
+    static final class PhysicsStep extends Event {
+        @Label("Bodies")
+        int bodies;
+
+        @Label("Pairs Tested")
+        int pairsTested;
+
+        @Label("Contacts")
+        int contacts;
+    }
+
+    @Name("taobin.ItemDispensed")
+    @Label("Item Dispensed")
+    @Category({ "Taobin", "Machine" })
+    @StackTrace(false)
+    static final class ItemDispensed extends Event {
+        @Label("Item")
+        String item;
+
+        @Label("Manual")
+        @Description("Dispensed by a click rather than the timer")
+        boolean manual;
+
+        @Label("Items On Screen")
+        int itemsOnScreen;
+    }
+
+    @Name("taobin.WeatherChanged")
+    @Label("Weather Changed")
+    @Category({ "Taobin", "Weather" })
+    @StackTrace(false)
+    static final class WeatherChanged extends Event {
+        @Label("From")
+        String from;
+
+        @Label("To")
+        String to;
+
+        @Label("Fade Steps")
+        int fadeSteps;
+
+        @Label("Precipitation Target")
+        int precipitationDensity;
+    }
+
+    @Name("taobin.SceneTransition")
+    @Label("Scene Transition")
+    @Category({ "Taobin", "Scenes" })
+    @Description("A cut to a new scene, from the switch until its first frame reached the screen")
+    @StackTrace(false)
+    static final class SceneTransition extends Event {
+        @Label("From")
+        String from;
+
+        @Label("To")
+        String to;
+
+        @Label("Style")
+        String style;
+
+        @Label("Build Time")
+        @Description("Time spent in the new scene's init")
+        @Timespan(Timespan.MILLISECONDS)
+        long buildTime;
+
+        @Label("First Frame Time")
+        @Description("Time from the switch until the first frame was presented")
+        @Timespan(Timespan.MILLISECONDS)
+        long firstFrameTime;
+    }
+}
@@ -0,0 +1,128 @@
+// FrameClock.java - Fixed-update / variable-render clock shared by every scene
+package projectCG;
+
+class FrameClock {
+    // Every scene's tuning assumes 60 updates per second
+    static final double STEP_SECONDS = 1.0 / 60.0;
+    static final long STEP_NANOS = 1_000_000_000L / 60;
+
+    // A long hitch only catches up this many steps; the rest is dropped so the
+    // scene slows for one frame instead of spiralling behind
+    private static final int MAX_STEPS_PER_FRAME = 5;
+    private static final double MAX_FRAME_SECONDS = MAX_STEPS_PER_FRAME * STEP_SECONDS;
+
+    private static final FrameClock shared = new FrameClock();
+
+    private long lastFrameNanos = -1;
+    private double accumulator = 0.0;
+    private double timeScale = 1.0;
+    private boolean paused = false;
+    private double alpha = 0.0;
+    private long stepCount = 0;
+    private long frameCount = 0;
+    private long droppedSteps = 0;
+
+    FrameClock() {
+        try {
+            timeScale = Math.max(0.0, Double.parseDouble(System.getProperty("taobin.timeScale", "1")));
+        } catch (NumberFormatException e) {
+            System.err.println("Invalid taobin.timeScale, using 1.0: " + e.getMessage());
+        }
+    }
+
+    static FrameClock shared() {
+        return shared;
+    }
+
+    // Restart measuring from now, e.g. when a new scene starts, so the gap isn't replayed
+    synchronized void reset() {
+        lastFrameNanos = System.nanoTime();
+        accumulator = 0.0;
+        alpha = 0.0;
+    }
+
+    // Called once per rendered frame; returns how many fixed steps to simulate
+    synchronized int advance() {
+        long now = System.nanoTime();
+        if (lastFrameNanos < 0) {
+            lastFrameNanos = now;
+        }
+        double frameSeconds = (now - lastFrameNanos) / 1_000_000_000.0;
+        lastFrameNanos = now;
+        frameCount++;
+
+        if (paused) {
+            return 0;
+        }
+
+        // Whatever a hitch runs past the cap is never simulated; count it before it is clamped away
+        if (frameSeconds > MAX_FRAME_SECONDS) {
+            droppedSteps += (long) ((frameSeconds - MAX_FRAME_SECONDS) * timeScale / STEP_SECONDS);
+        }
+        accumulator += Math.min(frameSeconds, MAX_FRAME_SECONDS) * timeScale;
+
+        int steps = 0;
+        while (accumulator >= STEP_SECONDS && steps < MAX_STEPS_PER_FRAME) {
+            accumulator -= STEP_SECONDS;
+            steps++;
+        }
+        if (accumulator >= STEP_SECONDS) {
+            droppedSteps += (long) (accumulator / STEP_SECONDS);
+            accumulator %= STEP_SECONDS;
+        }
+
+        stepCount += steps;
+        alpha = accumulator / STEP_SECONDS;
+        return steps;
+    }
+
+    // How far the render time sits between the last two simulated steps (0..1)
+    synchronized double getAlpha() {
+        return alpha;
+    }
+
+    synchronized float interpolate(float previous, float current) {
+        return previous + (current - previous) * (float) alpha;
+    }
+
+    synchronized double interpolate(double previous, double current) {
+        return previous + (current - previous) * alpha;
+    }
+
+    synchronized void setPaused(boolean paused) {
+        this.paused = paused;
+        if (!paused) {
+            lastFrameNanos = System.nanoTime();
+        }
+    }
+
+    synchronized boolean isPaused() {
+        return paused;
+    }
+
+    synchronized void setTimeScale(double timeScale) {
+        this.timeScale = Math.max(0.0, timeScale);
+    }
+
+    synchronized double getTimeScale() {
+        return timeScale;
+    }
+
+    synchronized long getStepCount() {
+        return stepCount;
+    }
+
+    synchronized long getFrameCount() {
+        return frameCount;
+    }
+
+    // Simulation steps skipped by hitches since startup, so slowdowns show up in monitoring
+    synchronized long getDroppedSteps() {
+        return droppedSteps;
+    }
+
+    // Simulated seconds since the application started
+    synchronized double getTime() {
+        return stepCount * STEP_SECONDS;
+    }
+}
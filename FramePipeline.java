@@ -0,0 +1,208 @@
+// FramePipeline.java - Pipelined simulate / render / present with triple buffering
+package projectCG;
+
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+class FramePipeline {
+    // Immutable picture of the world after a simulation step, safe to render on another thread
+    interface Snapshot {
+        void render(Graphics2D g2d);
+    }
+
+    // Runs the given number of fixed steps on the simulation thread and captures the result
+    interface Simulation {
+        Snapshot step(int steps);
+    }
+
+    static boolean isEnabled() {
+        return Boolean.getBoolean("taobin.pipeline");
+    }
+
+    private final String name;
+    private final Simulation simulation;
+    private final Runnable presentRequest;
+    private final FrameClock clock = FrameClock.shared();
+
+    // Single-slot mailbox: if rendering falls behind, older snapshots are simply replaced
+    private final AtomicReference<Snapshot> pendingSnapshot = new AtomicReference<>();
+
+    // Triple buffer: the render thread owns back, the EDT owns front, ready is the
+    // latest completed frame waiting to be presented
+    private final BufferedImage[] buffers = new BufferedImage[3];
+    private int backIndex = 0;
+    private int readyIndex = 1;
+    private int frontIndex = 2;
+    private boolean readyIsFresh = false;
+    private boolean hasFrame = false;
+
+    private volatile boolean running = false;
+    // While suspended the simulation thread neither advances the clock nor steps, so the EDT can drive
+    private volatile boolean suspended = false;
+    private Thread simulationThread;
+    private Thread renderThread;
+
+    FramePipeline(String name, int width, int height, Simulation simulation, Runnable presentRequest) {
+        this.name = name;
+        this.simulation = simulation;
+        this.presentRequest = presentRequest;
+        for (int i = 0; i < buffers.length; i++) {
+            buffers[i] = ImagePool.shared().acquire(width, height, BufferedImage.TYPE_INT_ARGB);
+        }
+    }
+
+    void start() {
+        if (running)
+            return;
+        running = true;
+        clock.reset();
+
+        simulationThread = new Thread(this::simulationLoop, name + "-simulation");
+        simulationThread.setDaemon(true);
+        renderThread = new Thread(this::renderLoop, name + "-render");
+        renderThread.setDaemon(true);
+
+        simulationThread.start();
+        renderThread.start();
+    }
+
+    // Must not be called from the pipeline's own threads
+    void stop() {
+        running = false;
+        joinQuietly(simulationThread);
+        joinQuietly(renderThread);
+        simulationThread = null;
+        renderThread = null;
+        pendingSnapshot.set(null);
+    }
+
+    boolean isRunning() {
+        return running;
+    }
+
+    // For a scene that can't be snapshotted; the host steps and renders it on the EDT meanwhile
+    void suspend() {
+        suspended = true;
+    }
+
+    // The frame from before the suspension is stale, so nothing is presented until a new one is rendered
+    void resume() {
+        pendingSnapshot.set(null);
+        synchronized (this) {
+            hasFrame = false;
+            readyIsFresh = false;
+        }
+        suspended = false;
+        LockSupport.unpark(simulationThread);
+    }
+
+    synchronized boolean hasFrame() {
+        return hasFrame;
+    }
+
+    // Returns the buffers to the pool; only call once stopped
+    void flush() {
+        for (int i = 0; i < buffers.length; i++) {
+            ImagePool.shared().release(buffers[i]);
+            buffers[i] = null;
+        }
+    }
+
+    // EDT: blit the most recent completed frame. Returns true only if a newly rendered frame was
+    // swapped in; a repaint with nothing new re-blits the last one, and before the first frame draws nothing
+    boolean present(Graphics2D g2d) {
+        BufferedImage frame;
+        boolean fresh;
+        synchronized (this) {
+            if (!hasFrame)
+                return false;
+            fresh = readyIsFresh;
+            if (readyIsFresh) {
+                int swap = frontIndex;
+                frontIndex = readyIndex;
+                readyIndex = swap;
+                readyIsFresh = false;
+            }
+            frame = buffers[frontIndex];
+        }
+        g2d.drawImage(frame, 0, 0, null);
+        return fresh;
+    }
+
+    private void simulationLoop() {
+        long nextStep = System.nanoTime();
+        while (running) {
+            if (suspended) {
+                LockSupport.parkNanos(FrameClock.STEP_NANOS);
+                nextStep = System.nanoTime();
+                continue;
+            }
+            nextStep += FrameClock.STEP_NANOS;
+            long wait = nextStep - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            } else if (wait < -FrameClock.STEP_NANOS * 5) {
+                // Fell far behind (e.g. the machine slept), don't burst to catch up
+                nextStep = System.nanoTime();
+            }
+
+            try {
+                int steps = clock.advance();
+                if (steps > 0 && running) {
+                    Snapshot snapshot = simulation.step(steps);
+                    if (snapshot != null) {
+                        pendingSnapshot.set(snapshot);
+                        LockSupport.unpark(renderThread);
+                    }
+                }
+            } catch (Exception e) {
+                System.err.println("Error in " + name + " simulation: " + e.getMessage());
+            }
+        }
+    }
+
+    private void renderLoop() {
+        while (running) {
+            Snapshot snapshot = pendingSnapshot.getAndSet(null);
+            if (snapshot == null) {
+                LockSupport.parkNanos(FrameClock.STEP_NANOS);
+                continue;
+            }
+
+            BufferedImage target = buffers[backIndex];
+            Graphics2D g2d = target.createGraphics();
+            try {
+                g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+                g2d.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+                snapshot.render(g2d);
+            } catch (Exception e) {
+                System.err.println("Error in " + name + " render: " + e.getMessage());
+            } finally {
+                g2d.dispose();
+            }
+
+            synchronized (this) {
+                int swap = readyIndex;
+                readyIndex = backIndex;
+                backIndex = swap;
+                readyIsFresh = true;
+                hasFrame = true;
+            }
+            presentRequest.run();
+        }
+    }
+
+    private void joinQuietly(Thread thread) {
+        if (thread == null || thread == Thread.currentThread())
+            return;
+        LockSupport.unpark(thread);
+        try {
+            thread.join(500);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,154 @@
+// ImagePool.java - Shared pool of BufferedImages reused across scenes and transitions
+package projectCG;
+
+import java.awt.AlphaComposite;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+class ImagePool {
+    private static final long DEFAULT_CAP_BYTES = 64L * 1024 * 1024;
+
+    private static final ImagePool shared = new ImagePool(readCapBytes());
+
+    // Idle images grouped by (width, height, type); access order makes the first key the least recently used
+    private final LinkedHashMap<Long, ArrayDeque<BufferedImage>> idle = new LinkedHashMap<>(16, 0.75f, true);
+    private final long capBytes;
+    private long idleBytes = 0;
+    private long allocations = 0;
+    private long reuses = 0;
+    private long evictions = 0;
+
+    ImagePool(long capBytes) {
+        this.capBytes = Math.max(0, capBytes);
+    }
+
+    static ImagePool shared() {
+        return shared;
+    }
+
+    private static long readCapBytes() {
+        try {
+            return Long.parseLong(System.getProperty("taobin.imagePoolMB", "64")) * 1024 * 1024;
+        } catch (NumberFormatException e) {
+            System.err.println("Invalid taobin.imagePoolMB, using 64: " + e.getMessage());
+            return DEFAULT_CAP_BYTES;
+        }
+    }
+
+    // Returns a fully transparent image of exactly this size and type, reusing an idle one if possible
+    BufferedImage acquire(int width, int height, int type) {
+        width = Math.max(1, width);
+        height = Math.max(1, height);
+
+        BufferedImage image = null;
+        synchronized (this) {
+            ArrayDeque<BufferedImage> images = idle.get(key(width, height, type));
+            if (images != null) {
+                image = images.pollFirst();
+                if (images.isEmpty()) {
+                    idle.remove(key(width, height, type));
+                }
+            }
+            if (image != null) {
+                idleBytes -= sizeOf(image);
+                reuses++;
+            } else {
+                allocations++;
+            }
+        }
+
+        if (image == null) {
+            return new BufferedImage(width, height, type);
+        }
+
+        // Reused images carry the previous owner's pixels
+        Graphics2D g2d = image.createGraphics();
+        try {
+            g2d.setComposite(AlphaComposite.Clear);
+            g2d.fillRect(0, 0, width, height);
+        } finally {
+            g2d.dispose();
+        }
+        return image;
+    }
+
+    // Hands an image back; the caller must not touch it afterwards
+    void release(BufferedImage image) {
+        if (image == null)
+            return;
+
+        long size = sizeOf(image);
+        synchronized (this) {
+            if (size > capBytes) {
+                image.flush();
+                return;
+            }
+            Long key = key(image.getWidth(), image.getHeight(), image.getType());
+            idle.computeIfAbsent(key, k -> new ArrayDeque<>()).addFirst(image);
+            idleBytes += size;
+
+            evictOverCap();
+        }
+    }
+
+    // Drops every idle image, e.g. when memory is tight
+    synchronized void clear() {
+        for (ArrayDeque<BufferedImage> images : idle.values()) {
+            for (BufferedImage image : images) {
+                image.flush();
+            }
+        }
+        idle.clear();
+        idleBytes = 0;
+    }
+
+    synchronized long getIdleBytes() {
+        return idleBytes;
+    }
+
+    synchronized long getAllocations() {
+        return allocations;
+    }
+
+    synchronized long getReuses() {
+        return reuses;
+    }
+
+    synchronized long getEvictions() {
+        return evictions;
+    }
+
+    long getCapBytes() {
+        return capBytes;
+    }
+
+    private void evictOverCap() {
+        Iterator<Map.Entry<Long, ArrayDeque<BufferedImage>>> entries = idle.entrySet().iterator();
+        while (idleBytes > capBytes && entries.hasNext()) {
+            ArrayDeque<BufferedImage> images = entries.next().getValue();
+            // Oldest images of the least recently used size go first
+            while (idleBytes > capBytes && !images.isEmpty()) {
+                BufferedImage image = images.pollLast();
+                idleBytes -= sizeOf(image);
+                image.flush();
+                evictions++;
+            }
+            if (images.isEmpty()) {
+                entries.remove();
+            }
+        }
+    }
+
+    private static long key(int width, int height, int type) {
+        return ((long) width << 40) | ((long) height << 16) | (type & 0xFFFF);
+    }
+
+    private static long sizeOf(BufferedImage image) {
+        int bitsPerPixel = image.getColorModel().getPixelSize();
+        return (long) image.getWidth() * image.getHeight() * Math.max(1, (bitsPerPixel + 7) / 8);
+    }
+}
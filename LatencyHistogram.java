@@ -0,0 +1,88 @@
+// LatencyHistogram.java - Lock-free log-linear histogram of latencies, in the spirit of HdrHistogram
+package projectCG;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+class LatencyHistogram {
+    // Values are whole microseconds. Below 128 µs every value has its own bucket; above that each
+    // power of two is split into 64 linear buckets, so any recorded value is within 1.6% of its bucket
+    private static final int SUB_BUCKET_BITS = 7;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int HALF_SUB_BUCKETS = SUB_BUCKETS / 2;
+    // A minute is plenty; anything longer is clamped into the top bucket
+    private static final long MAX_MICROS = 60_000_000L;
+    private static final int BUCKETS = indexOf(MAX_MICROS) + 1;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong total = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    void record(long nanos) {
+        long micros = Math.max(0, Math.min(MAX_MICROS, nanos / 1000));
+        counts.incrementAndGet(indexOf(micros));
+        total.incrementAndGet();
+        long seen = max.get();
+        while (micros > seen && !max.compareAndSet(seen, micros)) {
+            seen = max.get();
+        }
+    }
+
+    // Coordinated-omission correction: a stall of n intervals also stands for the frames that
+    // should have started during it and would each have waited a bit less
+    void recordCorrected(long nanos, long expectedIntervalNanos) {
+        record(nanos);
+        if (expectedIntervalNanos <= 0)
+            return;
+        for (long missing = nanos - expectedIntervalNanos; missing >= expectedIntervalNanos;
+                missing -= expectedIntervalNanos) {
+            record(missing);
+        }
+    }
+
+    long getCount() {
+        return total.get();
+    }
+
+    long getMaxMicros() {
+        return max.get();
+    }
+
+    // Upper edge of the bucket holding the given percentile, in microseconds
+    long percentileMicros(double percentile) {
+        long count = total.get();
+        if (count == 0)
+            return 0;
+        long rank = Math.max(1, (long) Math.ceil(count * percentile / 100.0));
+        long seen = 0;
+        for (int index = 0; index < BUCKETS; index++) {
+            seen += counts.get(index);
+            if (seen >= rank)
+                return Math.min(max.get(), highestIn(index));
+        }
+        return max.get();
+    }
+
+    void reset() {
+        for (int index = 0; index < BUCKETS; index++) {
+            counts.set(index, 0);
+        }
+        total.set(0);
+        max.set(0);
+    }
+
+    private static int indexOf(long micros) {
+        if (micros < SUB_BUCKETS)
+            return (int) micros;
+        int shift = 63 - Long.numberOfLeadingZeros(micros) - (SUB_BUCKET_BITS - 1);
+        return SUB_BUCKETS + (shift - 1) * HALF_SUB_BUCKETS + (int) ((micros >>> shift) - HALF_SUB_BUCKETS);
+    }
+
+    private static long highestIn(int index) {
+        if (index < SUB_BUCKETS)
+            return index;
+        int shift = (index - SUB_BUCKETS) / HALF_SUB_BUCKETS + 1;
+        long subBucket = (index - SUB_BUCKETS) % HALF_SUB_BUCKETS + HALF_SUB_BUCKETS;
+        return ((subBucket + 1) << shift) - 1;
+    }
+}
@@ -0,0 +1,146 @@
+// LatencyRecorder.java - Per-scene, per-phase latency histograms with a percentile report on exit or on demand
+package projectCG;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+class LatencyRecorder {
+    // Off unless -Dtaobin.latencyReport=<file> is set; the report is written there on exit and on F4
+    private static final LatencyRecorder shared = new LatencyRecorder(System.getProperty("taobin.latencyReport"));
+
+    enum Phase {
+        FRAME,
+        UPDATE,
+        RENDER,
+        PRESENT
+    }
+
+    private static final double[] PERCENTILES = { 50, 90, 99, 99.9 };
+
+    // Everything recorded for one scene; FRAME is kept both raw and corrected for coordinated omission
+    private static final class SceneLatencies {
+        final String scene;
+        final LatencyHistogram[] phases = new LatencyHistogram[Phase.values().length];
+        final LatencyHistogram correctedFrames = new LatencyHistogram();
+
+        SceneLatencies(String scene) {
+            this.scene = scene;
+            for (int i = 0; i < phases.length; i++) {
+                phases[i] = new LatencyHistogram();
+            }
+        }
+    }
+
+    private final Path reportPath;
+    private final Map<String, SceneLatencies> scenes = new ConcurrentHashMap<>();
+    // The scene most recently recorded into, so the common case skips the map
+    private volatile SceneLatencies last;
+
+    LatencyRecorder(String reportPath) {
+        this.reportPath = reportPath == null || reportPath.isEmpty() ? null : Paths.get(reportPath);
+        if (this.reportPath != null) {
+            Runtime.getRuntime().addShutdownHook(new Thread(this::writeReport, "latency-report"));
+        }
+    }
+
+    static LatencyRecorder shared() {
+        return shared;
+    }
+
+    boolean isEnabled() {
+        return reportPath != null;
+    }
+
+    void record(String scene, Phase phase, long nanos) {
+        if (reportPath == null)
+            return;
+        latenciesFor(scene).phases[phase.ordinal()].record(nanos);
+    }
+
+    // Frame latency is the gap between presents (0 for the first); a late frame also stands for the ones
+    // that never got a chance
+    void framePresented(String scene, long frameNanos) {
+        if (reportPath == null || frameNanos <= 0)
+            return;
+        SceneLatencies latencies = latenciesFor(scene);
+        latencies.phases[Phase.FRAME.ordinal()].record(frameNanos);
+        latencies.correctedFrames.recordCorrected(frameNanos, FrameClock.STEP_NANOS);
+    }
+
+    private SceneLatencies latenciesFor(String scene) {
+        SceneLatencies latencies = last;
+        if (latencies == null || !latencies.scene.equals(scene)) {
+            latencies = scenes.computeIfAbsent(scene, SceneLatencies::new);
+            last = latencies;
+        }
+        return latencies;
+    }
+
+    // For F4: the write happens off the EDT so it doesn't stall the frames it is reporting on
+    void writeReportInBackground() {
+        if (reportPath == null)
+            return;
+        Thread writer = new Thread(this::writeReport, "latency-report");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    synchronized void writeReport() {
+        if (reportPath == null)
+            return;
+        try {
+            Path parent = reportPath.toAbsolutePath().getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+            try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(reportPath, StandardCharsets.UTF_8))) {
+                writeReport(out);
+            }
+            System.out.println("Latency report written to " + reportPath);
+        } catch (IOException e) {
+            System.err.println("Error writing latency report: " + e.getMessage());
+        }
+    }
+
+    private void writeReport(PrintWriter out) {
+        Runtime runtime = Runtime.getRuntime();
+        out.println("# Frame latency report " + LocalDateTime.now());
+        out.println("# " + System.getProperty("java.vm.name") + " " + System.getProperty("java.version") + ", "
+                + System.getProperty("os.name") + " " + System.getProperty("os.arch") + ", "
+                + runtime.availableProcessors() + " cpus, " + runtime.maxMemory() / (1024 * 1024) + " MB max heap");
+        out.println("# Times in ms. frame* is frame corrected for coordinated omission against a "
+                + String.format(Locale.ROOT, "%.2f", FrameClock.STEP_NANOS / 1e6) + " ms interval.");
+        out.println(String.format(Locale.ROOT, "%-28s %-8s %9s %9s %9s %9s %9s %9s", "scene", "phase", "count",
+                "p50", "p90", "p99", "p99.9", "max"));
+
+        for (SceneLatencies latencies : new TreeMap<>(scenes).values()) {
+            for (Phase phase : Phase.values()) {
+                writeRow(out, latencies.scene, phase.name().toLowerCase(), latencies.phases[phase.ordinal()]);
+                if (phase == Phase.FRAME) {
+                    writeRow(out, latencies.scene, "frame*", latencies.correctedFrames);
+                }
+            }
+        }
+    }
+
+    private static void writeRow(PrintWriter out, String scene, String phase, LatencyHistogram histogram) {
+        if (histogram.getCount() == 0)
+            return;
+        StringBuilder row = new StringBuilder(
+                String.format(Locale.ROOT, "%-28s %-8s %9d", scene, phase, histogram.getCount()));
+        for (double percentile : PERCENTILES) {
+            row.append(String.format(Locale.ROOT, " %9.3f", histogram.percentileMicros(percentile) / 1000.0));
+        }
+        row.append(String.format(Locale.ROOT, " %9.3f", histogram.getMaxMicros() / 1000.0));
+        out.println(row);
+    }
+}
@@ -0,0 +1,194 @@
+// LightningStorm.java - Branching lightning strikes generated once and pre-stroked into cached images
+package projectCG;
+
+import java.awt.AlphaComposite;
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Composite;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.awt.geom.Path2D;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+class LightningStorm {
+    private static final int MAX_STRIKES = 2;
+    // Average steps between strikes while the storm is on
+    private static final float STRIKE_CHANCE = 1f / 50f;
+    private static final int GLOW_PADDING = 10;
+
+    // Brightness per step of a strike: the first hit, a flicker of return strokes, then a fade
+    private static final float[] ENVELOPE = {
+            1.0f, 0.85f, 0.4f, 0.95f, 0.7f, 0.3f, 0.8f, 0.65f, 0.5f, 0.4f,
+            0.32f, 0.25f, 0.2f, 0.16f, 0.12f, 0.09f, 0.07f, 0.05f, 0.03f, 0.02f
+    };
+
+    private static final BasicStroke OUTER_GLOW = new BasicStroke(14, BasicStroke.CAP_ROUND, BasicStroke.JOIN_ROUND);
+    private static final BasicStroke INNER_GLOW = new BasicStroke(7, BasicStroke.CAP_ROUND, BasicStroke.JOIN_ROUND);
+    private static final BasicStroke CORE = new BasicStroke(2.5f, BasicStroke.CAP_ROUND, BasicStroke.JOIN_ROUND);
+    private static final BasicStroke BRANCH_GLOW = new BasicStroke(6, BasicStroke.CAP_ROUND, BasicStroke.JOIN_ROUND);
+    private static final BasicStroke BRANCH_CORE = new BasicStroke(1.5f, BasicStroke.CAP_ROUND,
+            BasicStroke.JOIN_ROUND);
+    private static final Color OUTER_GLOW_COLOR = new Color(170, 190, 255, 35);
+    private static final Color INNER_GLOW_COLOR = new Color(200, 215, 255, 80);
+    private static final Color CORE_COLOR = new Color(255, 255, 255, 255);
+    private static final Color BRANCH_GLOW_COLOR = new Color(190, 205, 255, 45);
+    private static final Color BRANCH_CORE_COLOR = new Color(230, 235, 255, 210);
+    private static final Color SKY_FLASH_COLOR = new Color(235, 240, 255);
+
+    private static final class Strike {
+        final Path2D.Float bolt;
+        final List<Path2D.Float> branches;
+        int step = 0;
+        BufferedImage image;
+        int imageX;
+        int imageY;
+
+        Strike(Path2D.Float bolt, List<Path2D.Float> branches) {
+            this.bolt = bolt;
+            this.branches = branches;
+        }
+    }
+
+    private final Random random = new Random();
+    private final List<Strike> strikes = new ArrayList<>(MAX_STRIKES);
+
+    // One fixed step: ages the strikes on screen and, while the storm is on, sometimes starts a new one
+    void update(boolean storming, int width, int height) {
+        for (int i = strikes.size() - 1; i >= 0; i--) {
+            Strike strike = strikes.get(i);
+            if (++strike.step >= ENVELOPE.length) {
+                ImagePool.shared().release(strike.image);
+                strikes.remove(i);
+            }
+        }
+        if (storming && strikes.size() < MAX_STRIKES && random.nextFloat() < STRIKE_CHANCE) {
+            strikes.add(createStrike(width, height));
+        }
+    }
+
+    // Each strike is stroked once on its first frame; after that it is a blit with the envelope's alpha
+    void render(Graphics2D g2d, int width, int height) {
+        if (strikes.isEmpty())
+            return;
+
+        Composite originalComposite = g2d.getComposite();
+        try {
+            float flash = 0;
+            for (Strike strike : strikes) {
+                if (strike.image == null) {
+                    strokeStrike(strike);
+                }
+                float brightness = ENVELOPE[strike.step];
+                flash = Math.max(flash, brightness);
+                g2d.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER, brightness));
+                g2d.drawImage(strike.image, strike.imageX, strike.imageY, null);
+            }
+
+            // The whole sky lights up briefly on the brightest moments
+            if (flash > 0.6f) {
+                g2d.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER, (flash - 0.6f) * 0.5f));
+                g2d.setColor(SKY_FLASH_COLOR);
+                g2d.fillRect(0, 0, width, height);
+            }
+        } finally {
+            g2d.setComposite(originalComposite);
+        }
+    }
+
+    void clear() {
+        for (Strike strike : strikes) {
+            ImagePool.shared().release(strike.image);
+        }
+        strikes.clear();
+    }
+
+    private Strike createStrike(int width, int height) {
+        float startX = width * (0.1f + random.nextFloat() * 0.8f);
+        float startY = 20;
+        float endX = startX + (random.nextFloat() - 0.5f) * 160;
+        float endY = height * (0.4f + random.nextFloat() * 0.35f);
+
+        List<float[]> points = new ArrayList<>();
+        points.add(new float[] { startX, startY });
+        displace(points, startX, startY, endX, endY, (endY - startY) * 0.25f, 5);
+        Path2D.Float bolt = toPath(points);
+
+        // Forks leave from the upper part of the bolt and head down and outwards
+        List<Path2D.Float> branches = new ArrayList<>();
+        int forks = 2 + random.nextInt(3);
+        for (int n = 0; n < forks; n++) {
+            float[] from = points.get(1 + random.nextInt(Math.max(1, points.size() * 7 / 10 - 1)));
+            double angle = Math.toRadians(90 + (random.nextBoolean() ? 1 : -1) * (20 + random.nextInt(35)));
+            float length = (endY - from[1]) * (0.2f + random.nextFloat() * 0.25f) + 20;
+            float toX = from[0] + (float) (Math.cos(angle) * length);
+            float toY = from[1] + (float) (Math.sin(angle) * length);
+
+            List<float[]> branch = new ArrayList<>();
+            branch.add(from);
+            displace(branch, from[0], from[1], toX, toY, length * 0.2f, 3);
+            branches.add(toPath(branch));
+        }
+        return new Strike(bolt, branches);
+    }
+
+    // Midpoint displacement; appends every point after the start, ending with (x1, y1)
+    private void displace(List<float[]> points, float x0, float y0, float x1, float y1, float offset, int depth) {
+        if (depth == 0) {
+            points.add(new float[] { x1, y1 });
+            return;
+        }
+        float midX = (x0 + x1) / 2 + (random.nextFloat() - 0.5f) * 2 * offset;
+        float midY = (y0 + y1) / 2 + (random.nextFloat() - 0.5f) * offset * 0.5f;
+        displace(points, x0, y0, midX, midY, offset / 2, depth - 1);
+        displace(points, midX, midY, x1, y1, offset / 2, depth - 1);
+    }
+
+    private static Path2D.Float toPath(List<float[]> points) {
+        Path2D.Float path = new Path2D.Float();
+        path.moveTo(points.get(0)[0], points.get(0)[1]);
+        for (int i = 1; i < points.size(); i++) {
+            path.lineTo(points.get(i)[0], points.get(i)[1]);
+        }
+        return path;
+    }
+
+    private static void strokeStrike(Strike strike) {
+        Rectangle bounds = strike.bolt.getBounds();
+        for (Path2D.Float branch : strike.branches) {
+            bounds.add(branch.getBounds());
+        }
+        bounds.grow(GLOW_PADDING, GLOW_PADDING);
+        strike.imageX = bounds.x;
+        strike.imageY = bounds.y;
+        strike.image = ImagePool.shared().acquire(bounds.width, bounds.height, BufferedImage.TYPE_INT_ARGB);
+
+        Graphics2D g2d = strike.image.createGraphics();
+        try {
+            g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            g2d.translate(-bounds.x, -bounds.y);
+            for (Path2D.Float branch : strike.branches) {
+                g2d.setStroke(BRANCH_GLOW);
+                g2d.setColor(BRANCH_GLOW_COLOR);
+                g2d.draw(branch);
+                g2d.setStroke(BRANCH_CORE);
+                g2d.setColor(BRANCH_CORE_COLOR);
+                g2d.draw(branch);
+            }
+            g2d.setStroke(OUTER_GLOW);
+            g2d.setColor(OUTER_GLOW_COLOR);
+            g2d.draw(strike.bolt);
+            g2d.setStroke(INNER_GLOW);
+            g2d.setColor(INNER_GLOW_COLOR);
+            g2d.draw(strike.bolt);
+            g2d.setStroke(CORE);
+            g2d.setColor(CORE_COLOR);
+            g2d.draw(strike.bolt);
+        } finally {
+            g2d.dispose();
+        }
+    }
+}
@@ -1,73 +1,160 @@
 package projectCG;
 
+import java.awt.AlphaComposite;
 import java.awt.BasicStroke;
 import java.awt.Color;
-import java.awt.Dimension;
+import java.awt.Composite;
 import java.awt.Font;
 import java.awt.GradientPaint;
-import java.awt.Graphics;
 import java.awt.Graphics2D;
 import java.awt.Point;
 import java.awt.Polygon;
 import java.awt.RadialGradientPaint;
 import java.awt.RenderingHints;
-import java.awt.event.ActionEvent;
-import java.awt.event.ActionListener;
 import java.awt.event.MouseEvent;
-import java.awt.event.MouseListener;
-import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
 import java.util.Random;
 
 import javax.swing.JFrame;
-import javax.swing.JPanel;
 import javax.swing.SwingUtilities;
-import javax.swing.Timer;
 
-public class LofiTaoBinVendingMachine extends JPanel implements ActionListener, MouseListener {
-    private Timer animationTimer;
-    private Timer dispensingTimer;
+public class LofiTaoBinVendingMachine implements Scene {
+    private int width = 600;
+    private int height = 600;
+    private final Color background = new Color(255, 240, 245);
+    private final FrameClock clock = FrameClock.shared();
+    private final TimerWheel timers = TimerWheel.shared();
+    private final AllocationLedger.SceneAllocations allocations =
+            AllocationLedger.shared().forScene(getClass().getSimpleName());
+    private final TraceRecorder tracer = TraceRecorder.shared();
+    private TimerWheel.Timeout dispenseTimeout;
+    private TimerWheel.Timeout weatherTimeout;
     private float time = 0;
     private List<FallingItem> fallingItems;
     private List<Particle> particles;
-    private List<GiftBox> giftBoxes; // For Santa's gifts in Snow weather
     private Random random;
     private Point lastClickedItem = null;
     private int floorY; // Ground level for physics
+    private final RotationSpriteCache spriteCache = new RotationSpriteCache();
 
-    private static JFrame frame;
+    // Timed events go on the shared wheel only once the scene is on screen,
+    // so a preloaded instance doesn't start its show early
+    @Override
+    public void init(SceneHost host) {
+        this.width = host.getSceneWidth();
+        this.height = host.getSceneHeight();
+        scheduleWeatherChange();
+        if (currentWeather == Weather.SNOW_FALL) {
+            scheduleSleighPass();
+        }
+        for (Particle particle : particles) {
+            scheduleExpiry(particle);
+        }
+    }
 
-    public static void setFrame(JFrame f) {
-        frame = f;
+    @Override
+    public void dispose() {
+        if (dispenseTimeout != null)
+            dispenseTimeout.cancel();
+        if (weatherTimeout != null)
+            weatherTimeout.cancel();
+        fallingItems.clear();
+        particles.clear();
+        endSleighPass();
+        spriteCache.clear();
+        endWeatherFade();
+        precipitation.dispose();
+        snowCover.dispose();
+        lightning.clear();
     }
 
-    public static JFrame getFrame() {
-        return frame;
+    @Override
+    public void countEntities(Map<String, Integer> counts) {
+        counts.put("items", fallingItems.size());
+        counts.put("gifts", activeGifts);
+        counts.put("particles", particles.size());
+        counts.put("raindrops", precipitation.getCount(PrecipitationField.Kind.RAIN));
+        counts.put("snowflakes", precipitation.getCount(PrecipitationField.Kind.SNOW));
     }
 
-    public void startAnimation() {
-        if (timer != null && !timer.isRunning()) {
-            timer.start();
+    private static int readGiftBurstSize() {
+        try {
+            return Math.max(0, Integer.parseInt(System.getProperty("taobin.giftBurst", "8")));
+        } catch (NumberFormatException e) {
+            System.err.println("Invalid taobin.giftBurst, using 8: " + e.getMessage());
+            return 8;
         }
     }
 
+    private static int readWeatherFadeSteps() {
+        try {
+            return Math.max(0, Integer.parseInt(System.getProperty("taobin.weatherFadeSteps", "45")));
+        } catch (NumberFormatException e) {
+            System.err.println("Invalid taobin.weatherFadeSteps, using 45: " + e.getMessage());
+            return 45;
+        }
+    }
+
+    private int getWidth() {
+        return width;
+    }
+
+    private int getHeight() {
+        return height;
+    }
+
     // Animation states
     private boolean machineDropped = false;
     private float machineY = -500; // Start above screen
+    private float prevMachineY = -500;
     private float machineTargetY;
     private float machineVelocityY = 0;
     private boolean machineOnGround = false;
 
     // Weather system
-    private String[] weatherEvents = {
-            "Sunny Day", "Partly Cloudy", "Overcast",
-            "Light Rain", "Thunderstorm", "Rainbow",
-            "Spring Breeze", "Snow Fall", "Autumn Leaves",
-            "Starry Night", "Dawn Break", "Sunset Glow"
-    };
-    private String currentWeather;
-    private float weatherChangeTimer = 0;
+    private Weather currentWeather;
+
+    // Weather cross-fade: both skies come from cached layers, each re-rendered every few frames,
+    // so a blend costs about one extra blit rather than a second full weather render
+    private static final int LAYER_REFRESH_FRAMES = 4;
+    private final int weatherFadeSteps = readWeatherFadeSteps();
+    private Weather fadingWeather;
+    private int weatherFadeStep = 0;
+    private int weatherFadeFrame = 0;
+    private BufferedImage outgoingWeatherLayer;
+    private BufferedImage incomingWeatherLayer;
+
+    // Rain and snow live outside the weather layers so drops keep falling through a cross-fade
+    private final PrecipitationField precipitation = new PrecipitationField();
+    // Snow that settles on the glass floor; falling items rest on top of it
+    private final SnowCover snowCover = new SnowCover();
+    private final LightningStorm lightning = new LightningStorm();
+
+    // Santa's sleigh crosses the sky during Snow Fall and drops bursts of gift boxes
+    private static final int MAX_GIFTS = 512;
+    private static final int GIFT_BURSTS_PER_PASS = 6;
+    private static final int SLEIGH_Y = 110;
+    private static final float SLEIGH_SPEED = 6f;
+    private static final Color SLEIGH_RED = new Color(200, 40, 50);
+    private static final Color SLEIGH_GOLD = new Color(240, 200, 90);
+    private static final Color REINDEER_BROWN = new Color(140, 90, 55);
+    private final int giftBurstSize = readGiftBurstSize();
+    private final GiftBox[] giftPool = new GiftBox[MAX_GIFTS];
+    private int activeGifts = 0;
+    private TimerWheel.Timeout sleighTimeout;
+    private boolean sleighActive = false;
+    private float sleighX;
+    private float prevSleighX;
+    private float nextBurstX;
+
+    // Drinks and gifts go through one physics step; this array is reused for it every step
+    private static final Comparator<FallingItem> BY_LEFT_EDGE = Comparator.comparingDouble(item -> item.x - item.size / 2);
+    private FallingItem[] bodies = new FallingItem[64];
     private float weatherDuration = 600; // frames (3 seconds instead of 5-10)
 
     // Lofi color palette
@@ -94,6 +181,8 @@ public class LofiTaoBinVendingMachine extends JPanel implements ActionListener,
         boolean onGround = false;
         float bounciness = 0.6f;
         float friction = 0.8f;
+        float gravity = 0.8f; // Much stronger gravity!
+        float settleSpeed = 1.5f; // Increased threshold for faster settling
 
         public FallingItem(float x, float y, Color color, String text) {
             this.x = x;
@@ -113,7 +202,7 @@ public class LofiTaoBinVendingMachine extends JPanel implements ActionListener,
                 y += vy;
 
                 if (!onGround) {
-                    vy += 0.8f; // Much stronger gravity!
+                    vy += gravity;
                 }
 
                 rotation += rotationSpeed;
@@ -125,12 +214,17 @@ public class LofiTaoBinVendingMachine extends JPanel implements ActionListener,
                     vx *= friction; // Friction
                     rotationSpeed *= 0.9f;
 
-                    if (Math.abs(vy) < 1.5f) { // Increased threshold for faster settling
+                    if (Math.abs(vy) < settleSpeed) {
                         vy = 0;
                         onGround = true;
                     }
                 }
 
+                // Resting items ride the surface as snow piles up or melts away
+                if (onGround) {
+                    y = floorY - size / 2;
+                }
+
                 // Wall collisions
                 if (x - size / 2 <= 0 && vx < 0) {
                     x = size / 2;
@@ -198,7 +292,8 @@ public class LofiTaoBinVendingMachine extends JPanel implements ActionListener,
     private static class Particle {
         float x, y, vx, vy;
         Color color;
-        float life, maxLife;
+        long lifeSteps, expiresAt;
+        boolean alive = true; // Cleared by the particle's expiry event on the timer wheel
         float size;
 
         public Particle(float x, float y) {
@@ -206,7 +301,8 @@ public class LofiTaoBinVendingMachine extends JPanel implements ActionListener,
             this.y = y;
             this.vx = (float) (Math.random() - 0.5) * 2;
             this.vy = (float) (Math.random() - 0.5) * 2 - 1;
-            this.maxLife = this.life = (float) Math.random() * 2 + 1;
+            // Same 1-3 life budget as before, which used to decay by 0.02 per step
+            this.lifeSteps = (long) (((float) Math.random() * 2 + 1) / 0.02f);
             this.size = (float) Math.random() * 3 + 1;
             this.color = new Color(255, 255, 255, 100);
         }
@@ -214,90 +310,198 @@ public class LofiTaoBinVendingMachine extends JPanel implements ActionListener,
         public void update() {
             x += vx;
             y += vy;
-            life -= 0.02f;
         }
 
         public boolean isAlive() {
-            return life > 0;
+            return alive;
         }
 
-        public float getAlpha() {
-            return life / maxLife;
+        public float getAlpha(long now) {
+            return Math.max(0, (expiresAt - now) / (float) lifeSteps);
         }
     }
 
-    // New class for Santa's gift boxes
-    private static class GiftBox {
-        float x, y, vx, vy, rotation, rotationSpeed;
-        Color color;
-        boolean isVisible;
-        float alpha = 1.0f;
-        float size = 15f;
-        boolean onGround = false;
-        float bounciness = 0.7f;
-        float friction = 0.85f;
+    // New class for Santa's gift boxes: the drinks' physics with lighter gravity and more bounce.
+    // Instances live in a fixed pool and are re-spawned rather than allocated per drop
+    private static class GiftBox extends FallingItem {
+        public GiftBox() {
+            super(0, 0, Color.WHITE, "Gift");
+            size = 15f;
+            bounciness = 0.7f;
+            friction = 0.85f;
+            gravity = 0.6f; // Gravity for gift boxes
+            settleSpeed = 1.0f;
+            isVisible = false;
+        }
 
-        public GiftBox(float x, float y, Color color) {
+        void spawn(float x, float y, Color color, float vx, float vy, float rotationSpeed) {
             this.x = x;
             this.y = y;
             this.color = color;
-            this.vx = (float) (Math.random() - 0.5) * 3;
-            this.vy = 1 + (float) Math.random() * 2;
+            this.vx = vx;
+            this.vy = vy;
             this.rotation = 0;
-            this.rotationSpeed = (float) (Math.random() - 0.5) * 0.15f;
+            this.rotationSpeed = rotationSpeed;
+            this.alpha = 1.0f;
+            this.onGround = false;
             this.isVisible = true;
         }
+    }
 
-        public void update(int floorY, int frameWidth) {
-            if (isVisible) {
-                x += vx;
-                y += vy;
+    // One layer of a weather's look, drawn by the scene it belongs to
+    @FunctionalInterface
+    private interface WeatherLayer {
+        void draw(LofiTaoBinVendingMachine scene, Graphics2D g2d);
+    }
 
-                if (!onGround) {
-                    vy += 0.6f; // Gravity for gift boxes
-                }
+    // Small animation inside the weather info panel
+    @FunctionalInterface
+    private interface PanelEffect {
+        void draw(LofiTaoBinVendingMachine scene, Graphics2D g2d, int x, int y, int width, int height);
+    }
 
-                rotation += rotationSpeed;
+    private static final WeatherLayer NO_LAYER = (scene, g2d) -> {
+    };
+    private static final PanelEffect NO_PANEL_EFFECT = (scene, g2d, x, y, width, height) -> {
+    };
 
-                // Ground collision
-                if (y + size / 2 >= floorY && vy > 0) {
-                    y = floorY - size / 2;
-                    vy *= -bounciness;
-                    vx *= friction;
-                    rotationSpeed *= 0.9f;
+    // Sky gradient: a base colour per channel plus how far it sways over time
+    private static final class SkyPalette {
+        private final int[] top;
+        private final int[] topSway;
+        private final int[] bottom;
+        private final int[] bottomSway;
+
+        SkyPalette(int[] top, int[] topSway, int[] bottom, int[] bottomSway) {
+            this.top = top;
+            this.topSway = topSway;
+            this.bottom = bottom;
+            this.bottomSway = bottomSway;
+        }
 
-                    if (Math.abs(vy) < 1.0f) {
-                        vy = 0;
-                        onGround = true;
-                    }
-                }
+        Color topColor(float t) {
+            return new Color(
+                    channel(top[0] + topSway[0] * Math.sin(t)),
+                    channel(top[1] + topSway[1] * Math.cos(t * 0.8f)),
+                    channel(top[2] + topSway[2] * Math.sin(t * 1.2f)));
+        }
 
-                // Wall collisions
-                if (x - size / 2 <= 0 && vx < 0) {
-                    x = size / 2;
-                    vx *= -bounciness;
-                } else if (x + size / 2 >= frameWidth && vx > 0) {
-                    x = frameWidth - size / 2;
-                    vx *= -bounciness;
-                }
+        Color bottomColor(float t) {
+            return new Color(
+                    channel(bottom[0] + bottomSway[0] * Math.sin(t * 0.5f)),
+                    channel(bottom[1] + bottomSway[1] * Math.cos(t * 0.7f)),
+                    channel(bottom[2] + bottomSway[2] * Math.sin(t * 0.9f)));
+        }
+    }
 
-                if (onGround) {
-                    vx *= 0.95f;
-                    if (Math.abs(vx) < 0.1f) {
-                        vx = 0;
-                    }
-                }
-            }
+    // Some palettes sway past 255; keep them in range instead of throwing mid-paint
+    private static int channel(double value) {
+        return Math.max(0, Math.min(255, (int) value));
+    }
+
+    // กลางคืน - สีม่วงเข้ม
+    private static final SkyPalette NIGHT_SKY = new SkyPalette(
+            new int[] { 25, 25, 60 }, new int[] { 15, 20, 30 },
+            new int[] { 60, 30, 80 }, new int[] { 20, 25, 15 });
+    // ฝนตก - สีเทาเข้ม
+    private static final SkyPalette RAIN_SKY = new SkyPalette(
+            new int[] { 80, 80, 90 }, new int[] { 20, 25, 20 },
+            new int[] { 120, 120, 130 }, new int[] { 30, 35, 25 });
+    // หิมะ - สีขาวฟ้าอ่อน
+    private static final SkyPalette SNOW_SKY = new SkyPalette(
+            new int[] { 200, 220, 255 }, new int[] { 25, 20, 0 },
+            new int[] { 240, 245, 255 }, new int[] { 15, 10, 0 });
+    // พระอาทิตย์ตก/ขึ้น - สีส้มชมพู
+    private static final SkyPalette GLOW_SKY = new SkyPalette(
+            new int[] { 255, 150, 100 }, new int[] { 0, 50, 30 },
+            new int[] { 255, 200, 150 }, new int[] { -30, 40, 60 });
+    // ใบไม้ร่วง - สีน้าตาลส้ม
+    private static final SkyPalette AUTUMN_SKY = new SkyPalette(
+            new int[] { 180, 120, 60 }, new int[] { 40, 50, 25 },
+            new int[] { 220, 160, 80 }, new int[] { 20, 30, 40 });
+    // ฤดูใบไม้ผลิ - สีเขียวอ่อน
+    private static final SkyPalette SPRING_SKY = new SkyPalette(
+            new int[] { 150, 220, 180 }, new int[] { 40, 25, 35 },
+            new int[] { 200, 255, 220 }, new int[] { 25, -15, 20 });
+    // ปกติ - ฟ้าใส
+    private static final SkyPalette CLEAR_SKY = new SkyPalette(
+            new int[] { 135, 206, 250 }, new int[] { 50, 30, 5 },
+            new int[] { 255, 240, 245 }, new int[] { -20, 15, 10 });
+
+    private static final Color NIGHT_CLOUD = new Color(40, 40, 60, 100);
+    private static final Color RAIN_CLOUD = new Color(60, 60, 70, 150);
+    private static final Color SNOW_CLOUD = new Color(255, 255, 255, 180);
+    private static final Color CLOUD = new Color(255, 255, 255, 120);
+
+    // Everything a weather changes on screen, resolved once here instead of by name every frame.
+    // Rainbow keeps the rainy sky and drizzle it always had
+    private enum Weather {
+        SUNNY_DAY("Sunny Day", CLEAR_SKY, CLOUD, NO_LAYER,
+                LofiTaoBinVendingMachine::drawSun, LofiTaoBinVendingMachine::drawPanelSunRays),
+        PARTLY_CLOUDY("Partly Cloudy", CLEAR_SKY, CLOUD, NO_LAYER,
+                LofiTaoBinVendingMachine::drawPartialSun, NO_PANEL_EFFECT),
+        OVERCAST("Overcast", CLEAR_SKY, CLOUD, NO_LAYER, NO_LAYER, NO_PANEL_EFFECT),
+        LIGHT_RAIN("Light Rain", RAIN_SKY, RAIN_CLOUD, NO_LAYER,
+                NO_LAYER, LofiTaoBinVendingMachine::drawPanelRain, PrecipitationField.Kind.RAIN, 1500),
+        THUNDERSTORM("Thunderstorm", RAIN_SKY, RAIN_CLOUD, NO_LAYER,
+                LofiTaoBinVendingMachine::drawLightning, LofiTaoBinVendingMachine::drawPanelRain,
+                PrecipitationField.Kind.RAIN, 10000),
+        RAINBOW("Rainbow", RAIN_SKY, RAIN_CLOUD, NO_LAYER,
+                LofiTaoBinVendingMachine::drawRainbow, LofiTaoBinVendingMachine::drawPanelRain,
+                PrecipitationField.Kind.RAIN, 400),
+        SPRING_BREEZE("Spring Breeze", SPRING_SKY, CLOUD, NO_LAYER,
+                LofiTaoBinVendingMachine::drawCherryBlossoms, NO_PANEL_EFFECT),
+        SNOW_FALL("Snow Fall", SNOW_SKY, SNOW_CLOUD, NO_LAYER,
+                NO_LAYER, LofiTaoBinVendingMachine::drawPanelSnow, PrecipitationField.Kind.SNOW, 3000),
+        AUTUMN_LEAVES("Autumn Leaves", AUTUMN_SKY, CLOUD, LofiTaoBinVendingMachine::drawBackgroundLeaves,
+                LofiTaoBinVendingMachine::drawFallingLeaves, NO_PANEL_EFFECT),
+        STARRY_NIGHT("Starry Night", NIGHT_SKY, NIGHT_CLOUD, LofiTaoBinVendingMachine::drawBackgroundStars,
+                LofiTaoBinVendingMachine::drawMoonAndStars, NO_PANEL_EFFECT),
+        DAWN_BREAK("Dawn Break", GLOW_SKY, CLOUD, NO_LAYER,
+                LofiTaoBinVendingMachine::drawSunrise, NO_PANEL_EFFECT),
+        SUNSET_GLOW("Sunset Glow", GLOW_SKY, CLOUD, NO_LAYER,
+                LofiTaoBinVendingMachine::drawSunset, NO_PANEL_EFFECT);
+
+        private static final Weather[] ALL = values();
+
+        final String label;
+        final SkyPalette sky;
+        final Color cloudColor;
+        final WeatherLayer backgroundEffect;
+        final WeatherLayer decoration;
+        final PanelEffect panelEffect;
+        final PrecipitationField.Kind precipitation;
+        final int precipitationDensity;
+
+        Weather(String label, SkyPalette sky, Color cloudColor, WeatherLayer backgroundEffect,
+                WeatherLayer decoration, PanelEffect panelEffect) {
+            this(label, sky, cloudColor, backgroundEffect, decoration, panelEffect, null, 0);
+        }
+
+        Weather(String label, SkyPalette sky, Color cloudColor, WeatherLayer backgroundEffect,
+                WeatherLayer decoration, PanelEffect panelEffect, PrecipitationField.Kind precipitation,
+                int precipitationDensity) {
+            this.label = label;
+            this.sky = sky;
+            this.cloudColor = cloudColor;
+            this.backgroundEffect = backgroundEffect;
+            this.decoration = decoration;
+            this.panelEffect = panelEffect;
+            this.precipitation = precipitation;
+            this.precipitationDensity = precipitationDensity;
+        }
+
+        static Weather random(Random random) {
+            return ALL[random.nextInt(ALL.length)];
         }
     }
 
     public LofiTaoBinVendingMachine() {
-        setPreferredSize(new Dimension(600, 600));
-        setBackground(new Color(255, 240, 245));
-
         fallingItems = new ArrayList<>();
         particles = new ArrayList<>();
-        giftBoxes = new ArrayList<>();
+        for (int i = 0; i < MAX_GIFTS; i++) {
+            giftPool[i] = new GiftBox();
+        }
         random = new Random();
 
         // Calculate floor position - move closer to bottom
@@ -311,21 +515,17 @@ public class LofiTaoBinVendingMachine extends JPanel implements ActionListener,
         machineVelocityY = 0;
 
         // Initialize weather with random selection
-        currentWeather = weatherEvents[random.nextInt(weatherEvents.length)];
-        weatherChangeTimer = 0;
-
-        animationTimer = new Timer(16, this); // ~60 FPS
-        animationTimer.start();
+        currentWeather = Weather.random(random);
+        precipitation.setWeather(currentWeather.precipitation, currentWeather.precipitationDensity);
+        snowCover.setMelting(currentWeather.precipitation != PrecipitationField.Kind.SNOW);
 
-        addMouseListener(this);
-
-        // Add some initial particles
+        // Add some initial particles; their expiry is scheduled when the scene starts
         for (int i = 0; i < 20; i++) {
             particles.add(new Particle(random.nextFloat() * 600, random.nextFloat() * 600));
         }
     }
 
-    private void dispenseRandomItem() {
+    private void dispenseRandomItem(boolean manual) {
         // Random color from lofi palette
         Color itemColor = lofiColors[random.nextInt(lofiColors.length)];
 
@@ -356,6 +556,15 @@ public class LofiTaoBinVendingMachine extends JPanel implements ActionListener,
 
         fallingItems.add(newItem);
 
+        MetricsEndpoint.shared().itemDispensed(manual);
+        FlightEvents.ItemDispensed dispensed = new FlightEvents.ItemDispensed();
+        if (dispensed.isEnabled()) {
+            dispensed.item = newItem.text;
+            dispensed.manual = manual;
+            dispensed.itemsOnScreen = fallingItems.size();
+            dispensed.commit();
+        }
+
         // Dispensing particles กระจายทั่ว area
         for (int i = 0; i < 15; i++) {
             float particleX = areaX + random.nextFloat() * areaWidth;
@@ -370,42 +579,67 @@ public class LofiTaoBinVendingMachine extends JPanel implements ActionListener,
                     itemColor.getBlue(),
                     180);
             sparkle.size = random.nextFloat() * 4 + 1;
-            particles.add(sparkle);
+            addParticle(sparkle);
         }
     }
 
     @Override
-    protected void paintComponent(Graphics g) {
-        super.paintComponent(g);
-        Graphics2D g2d = (Graphics2D) g;
+    public void render(Graphics2D g2d, int width, int height) {
+        this.width = width;
+        this.height = height;
+        g2d.setColor(background);
+        g2d.fillRect(0, 0, width, height);
         g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
         g2d.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+        // Clouds and lightning are part of the cached sky layers, so they're charged to the sky
+        long mark = allocations.mark();
+        long span = tracer.begin();
 
-        // Draw animated lofi sky background
-
-        drawLofiSkyBackground(g2d);
-        // Draw weather decorations AFTER sky but BEFORE other elements
-
-        drawWeatherDecorations(g2d);
+        // Draw animated lofi sky background, blending from the previous weather after a change
+        if (fadingWeather != null) {
+            drawWeatherFade(g2d);
+        } else {
+            drawWeatherBackground(g2d, currentWeather);
+        }
         drawLofiGreenGlass(g2d, floorY - 50);
+        mark = allocations.charge(AllocationLedger.Subsystem.SKY, mark);
+        span = tracer.end("LofiTaoBinVendingMachine.render.sky", span);
+        precipitation.render(g2d, getWidth(), getHeight());
+        snowCover.render(g2d, floorY);
+        mark = allocations.charge(AllocationLedger.Subsystem.WEATHER, mark);
+        span = tracer.end("LofiTaoBinVendingMachine.render.weather", span);
+        if (sleighActive) {
+            drawSleigh(g2d);
+        }
+        mark = allocations.charge(AllocationLedger.Subsystem.ITEMS, mark);
+        span = tracer.end("LofiTaoBinVendingMachine.render.items", span);
 
         // Draw floating particles
         drawParticles(g2d);
+        mark = allocations.charge(AllocationLedger.Subsystem.PARTICLES, mark);
+        span = tracer.end("LofiTaoBinVendingMachine.render.particles", span);
 
         // Draw weather info in top right corner
         drawWeatherInfo(g2d);
+        mark = allocations.charge(AllocationLedger.Subsystem.WEATHER, mark);
+        span = tracer.end("LofiTaoBinVendingMachine.render.weather", span);
 
         // Draw vertical Japanese text with animation
         drawAnimatedVerticalJapaneseText(g2d, "立方体の自動販売機", 50, 50, 20);
+        mark = allocations.charge(AllocationLedger.Subsystem.OTHER, mark);
+        span = tracer.end("LofiTaoBinVendingMachine.render.other", span);
 
         // Calculate machine position
         int cubeWidth = 200;
         int cubeHeight = 420;
         int machineX = (getWidth() - cubeWidth) / 2;
-        int currentMachineY = (int) machineY;
+        // Render between the last two steps so the drop is smooth at any refresh rate
+        int currentMachineY = (int) clock.interpolate(prevMachineY, machineY);
 
         // Draw dreamy glass floor
         drawLofiGreenGlass(g2d, floorY - 50);
+        mark = allocations.charge(AllocationLedger.Subsystem.SKY, mark);
+        span = tracer.end("LofiTaoBinVendingMachine.render.sky", span);
 
         // Only draw machine if it has started dropping or is on ground (always true
         // now)
@@ -414,14 +648,14 @@ public class LofiTaoBinVendingMachine extends JPanel implements ActionListener,
 
         // Draw the cubic vending machine with lofi colors
         drawLofiCubicVendingMachine(g2d, machineX, currentMachineY, cubeWidth, cubeHeight);
+        mark = allocations.charge(AllocationLedger.Subsystem.MACHINE, mark);
+        span = tracer.end("LofiTaoBinVendingMachine.render.machine", span);
 
         // Draw falling items only if machine is on ground
         if (machineOnGround) {
             drawFallingItems(g2d);
-            // Draw gift boxes for Snow weather
-            if (currentWeather.equals("Snow Fall")) {
-                drawGiftBoxes(g2d);
-            }
+            // Draw gift boxes for Snow weather; they're despawned when it ends
+            drawGiftBoxes(g2d);
         }
 
         // Draw item count
@@ -430,43 +664,64 @@ public class LofiTaoBinVendingMachine extends JPanel implements ActionListener,
             g2d.setFont(new Font("Arial", Font.BOLD, 14));
             g2d.drawString("Items: " + fallingItems.size(), 10, getHeight() - 20);
         }
+        allocations.charge(AllocationLedger.Subsystem.ITEMS, mark);
+        tracer.end("LofiTaoBinVendingMachine.render.items", span);
+    }
+
+    private void drawWeatherBackground(Graphics2D g2d, Weather weather) {
+        drawLofiSkyBackground(g2d, weather);
+        // Draw weather decorations AFTER sky but BEFORE other elements
+        drawWeatherDecorations(g2d, weather);
     }
 
     // NEW: Weather decorations method
-    private void drawWeatherDecorations(Graphics2D g2d) {
-        switch (currentWeather) {
-            case "Rainbow":
-                drawRainbow(g2d);
-                break;
-            case "Sunny Day":
-                drawSun(g2d);
-                break;
-            case "Snow Fall":
-                // Gift boxes are drawn separately in main paint method
-                break;
-            case "Starry Night":
-                drawMoon(g2d);
-                drawStars(g2d);
-                break;
-            case "Dawn Break":
-                drawSunrise(g2d);
-                break;
-            case "Sunset Glow":
-                drawSunset(g2d);
-                break;
-            case "Thunderstorm":
-                drawLightning(g2d);
-                break;
-            case "Spring Breeze":
-                drawCherryBlossoms(g2d);
-                break;
-            case "Autumn Leaves":
-                drawFallingLeaves(g2d);
-                break;
-            case "Partly Cloudy":
-                drawPartialSun(g2d);
-                break;
+    private void drawWeatherDecorations(Graphics2D g2d, Weather weather) {
+        // Snow Fall has none here; its gift boxes are drawn separately in the main paint method
+        weather.decoration.draw(this, g2d);
+    }
+
+    private void drawWeatherFade(Graphics2D g2d) {
+        // Stagger the refreshes so no frame re-renders both weathers after the first
+        int frame = weatherFadeFrame++;
+        outgoingWeatherLayer = refreshWeatherLayer(outgoingWeatherLayer, fadingWeather,
+                frame % LAYER_REFRESH_FRAMES == 0);
+        incomingWeatherLayer = refreshWeatherLayer(incomingWeatherLayer, currentWeather,
+                frame % LAYER_REFRESH_FRAMES == LAYER_REFRESH_FRAMES / 2);
+
+        float progress = Math.min(1.0f, (weatherFadeStep + (float) clock.getAlpha()) / weatherFadeSteps);
+        Composite originalComposite = g2d.getComposite();
+        g2d.drawImage(outgoingWeatherLayer, 0, 0, null);
+        g2d.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER, progress));
+        g2d.drawImage(incomingWeatherLayer, 0, 0, null);
+        g2d.setComposite(originalComposite);
+    }
+
+    private BufferedImage refreshWeatherLayer(BufferedImage layer, Weather weather, boolean due) {
+        if (layer == null || layer.getWidth() != getWidth() || layer.getHeight() != getHeight()) {
+            ImagePool.shared().release(layer);
+            // The sky covers every pixel, so the layer needs no alpha
+            layer = ImagePool.shared().acquire(getWidth(), getHeight(), BufferedImage.TYPE_INT_RGB);
+            due = true;
+        }
+        if (due) {
+            Graphics2D layerGraphics = layer.createGraphics();
+            try {
+                layerGraphics.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+                layerGraphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+                drawWeatherBackground(layerGraphics, weather);
+            } finally {
+                layerGraphics.dispose();
+            }
         }
+        return layer;
+    }
+
+    private void endWeatherFade() {
+        fadingWeather = null;
+        ImagePool.shared().release(outgoingWeatherLayer);
+        ImagePool.shared().release(incomingWeatherLayer);
+        outgoingWeatherLayer = null;
+        incomingWeatherLayer = null;
     }
 
     private void drawRainbow(Graphics2D g2d) {
@@ -539,6 +794,11 @@ public class LofiTaoBinVendingMachine extends JPanel implements ActionListener,
         g2d.drawArc(sunX - 12, sunY - 5, 24, 20, 0, -180);
     }
 
+    private void drawMoonAndStars(Graphics2D g2d) {
+        drawMoon(g2d);
+        drawStars(g2d);
+    }
+
     private void drawMoon(Graphics2D g2d) {
         int moonX = getWidth() - 120;
         int moonY = 100;
@@ -639,28 +899,8 @@ public class LofiTaoBinVendingMachine extends JPanel implements ActionListener,
     }
 
     private void drawLightning(Graphics2D g2d) {
-        // Random lightning bolts
-        if (random.nextFloat() < 0.1f) { // 10% chance each frame for lightning
-            g2d.setColor(new Color(255, 255, 255, (int) (200 + 50 * Math.sin(time * 0.5f))));
-            g2d.setStroke(new BasicStroke(4, BasicStroke.CAP_ROUND, BasicStroke.JOIN_ROUND));
-
-            // Draw zigzag lightning
-            int startX = random.nextInt(getWidth());
-            int startY = 20;
-            int currentX = startX;
-            int currentY = startY;
-
-            for (int i = 0; i < 6; i++) {
-                int nextX = currentX + random.nextInt(60) - 30;
-                int nextY = currentY + 30 + random.nextInt(40);
-                g2d.drawLine(currentX, currentY, nextX, nextY);
-                currentX = nextX;
-                currentY = nextY;
-
-                if (currentY > getHeight() / 2)
-                    break;
-            }
-        }
+        // Strikes are simulated in update(); drawing one is a cached blit
+        lightning.render(g2d, getWidth(), getHeight());
     }
 
     private void drawCherryBlossoms(Graphics2D g2d) {
@@ -751,117 +991,68 @@ public class LofiTaoBinVendingMachine extends JPanel implements ActionListener,
     }
 
     private void drawGiftBoxes(Graphics2D g2d) {
-        for (GiftBox gift : giftBoxes) {
+        for (int i = 0; i < activeGifts; i++) {
+            GiftBox gift = giftPool[i];
             if (gift.isVisible) {
-                AffineTransform oldTransform = g2d.getTransform();
-                g2d.translate(gift.x, gift.y);
-                g2d.rotate(gift.rotation);
-
-                // Gift box body
-                int halfSize = (int) (gift.size / 2);
-                g2d.setColor(gift.color);
-                g2d.fillRoundRect(-halfSize, -halfSize, (int) gift.size, (int) gift.size, 3, 3);
-
-                // Gift ribbon
-                g2d.setColor(Color.RED);
-                g2d.fillRect(-halfSize, -2, (int) gift.size, 4); // Horizontal ribbon
-                g2d.fillRect(-2, -halfSize, 4, (int) gift.size); // Vertical ribbon
-
-                // Gift bow
-                g2d.fillOval(-4, -halfSize - 2, 8, 6);
-
-                g2d.setTransform(oldTransform);
+                spriteCache.draw(g2d, RotationSpriteCache.Shape.GIFT_BOX, gift.color, gift.size, false,
+                        gift.rotation, gift.x, gift.y, gift.alpha);
             }
         }
     }
 
+    private void drawSleigh(Graphics2D g2d) {
+        int x = (int) clock.interpolate(prevSleighX, sleighX);
+        int y = SLEIGH_Y;
+
+        // Two reindeer out front on a shared harness
+        g2d.setStroke(new BasicStroke(1.5f));
+        g2d.setColor(SLEIGH_GOLD);
+        g2d.drawLine(x + 55, y + 8, x + 112, y + 4);
+        g2d.setColor(REINDEER_BROWN);
+        for (int i = 0; i < 2; i++) {
+            int deerX = x + 75 + i * 35;
+            int bob = (int) (3 * Math.sin(time * 0.3f + i));
+            g2d.fillOval(deerX, y + bob, 22, 10);
+            g2d.fillOval(deerX + 17, y - 6 + bob, 9, 8);
+            g2d.drawLine(deerX + 4, y + 8 + bob, deerX + 2, y + 16 + bob);
+            g2d.drawLine(deerX + 17, y + 8 + bob, deerX + 19, y + 16 + bob);
+            g2d.drawLine(deerX + 21, y - 6 + bob, deerX + 18, y - 12 + bob);
+            g2d.drawLine(deerX + 24, y - 6 + bob, deerX + 27, y - 12 + bob);
+        }
+
+        // Sleigh body, trim and runner
+        g2d.setColor(SLEIGH_RED);
+        g2d.fillRoundRect(x, y - 4, 56, 20, 12, 12);
+        g2d.setColor(SLEIGH_GOLD);
+        g2d.drawRoundRect(x, y - 4, 56, 20, 12, 12);
+        g2d.setStroke(new BasicStroke(2, BasicStroke.CAP_ROUND, BasicStroke.JOIN_ROUND));
+        g2d.drawLine(x - 2, y + 22, x + 52, y + 22);
+        g2d.drawArc(x + 46, y + 12, 14, 10, -90, 180);
+
+        // Santa
+        g2d.setColor(SLEIGH_RED);
+        g2d.fillOval(x + 14, y - 16, 18, 16);
+        g2d.setColor(new Color(255, 220, 190));
+        g2d.fillOval(x + 18, y - 24, 10, 10);
+    }
+
     // แก้ไข: เพิ่ม method drawLofiSkyBackground ที่หายไป + เปลี่ยนตาม season
-    private void drawLofiSkyBackground(Graphics2D g2d) {
+    private void drawLofiSkyBackground(Graphics2D g2d, Weather weather) {
         float t = time * 0.01f;
-        Color topColor, bottomColor;
 
         // เปลี่ยนสีฟ้าตาม season/weather
-        if (currentWeather.contains("Night") || currentWeather.contains("Starry")) {
-            // กลางคืน - สีม่วงเข้ม
-            topColor = new Color(
-                    (int) (25 + 15 * Math.sin(t)),
-                    (int) (25 + 20 * Math.cos(t * 0.8f)),
-                    (int) (60 + 30 * Math.sin(t * 1.2f)));
-            bottomColor = new Color(
-                    (int) (60 + 20 * Math.sin(t * 0.5f)),
-                    (int) (30 + 25 * Math.cos(t * 0.7f)),
-                    (int) (80 + 15 * Math.sin(t * 0.9f)));
-        } else if (currentWeather.contains("Rain") || currentWeather.contains("Thunder")) {
-            // ฝนตก - สีเทาเข้ม
-            topColor = new Color(
-                    (int) (80 + 20 * Math.sin(t)),
-                    (int) (80 + 25 * Math.cos(t * 0.8f)),
-                    (int) (90 + 20 * Math.sin(t * 1.2f)));
-            bottomColor = new Color(
-                    (int) (120 + 30 * Math.sin(t * 0.5f)),
-                    (int) (120 + 35 * Math.cos(t * 0.7f)),
-                    (int) (130 + 25 * Math.sin(t * 0.9f)));
-        } else if (currentWeather.contains("Snow")) {
-            // หิมะ - สีขาวฟ้าอ่อน
-            topColor = new Color(
-                    (int) (200 + 25 * Math.sin(t)),
-                    (int) (220 + 20 * Math.cos(t * 0.8f)),
-                    (int) (255));
-            bottomColor = new Color(
-                    (int) (240 + 15 * Math.sin(t * 0.5f)),
-                    (int) (245 + 10 * Math.cos(t * 0.7f)),
-                    (int) (255));
-        } else if (currentWeather.contains("Sunset") || currentWeather.contains("Dawn")) {
-            // พระอาทิตย์ตก/ขึ้น - สีส้มชมพู
-            topColor = new Color(
-                    (int) (255),
-                    (int) (150 + 50 * Math.cos(t * 0.8f)),
-                    (int) (100 + 30 * Math.sin(t * 1.2f)));
-            bottomColor = new Color(
-                    (int) (255 - 30 * Math.sin(t * 0.5f)),
-                    (int) (200 + 40 * Math.cos(t * 0.7f)),
-                    (int) (150 + 60 * Math.sin(t * 0.9f)));
-        } else if (currentWeather.contains("Autumn")) {
-            // ใบไม้ร่วง - สีน้าตาลส้ม
-            topColor = new Color(
-                    (int) (180 + 40 * Math.sin(t)),
-                    (int) (120 + 50 * Math.cos(t * 0.8f)),
-                    (int) (60 + 25 * Math.sin(t * 1.2f)));
-            bottomColor = new Color(
-                    (int) (220 + 20 * Math.sin(t * 0.5f)),
-                    (int) (160 + 30 * Math.cos(t * 0.7f)),
-                    (int) (80 + 40 * Math.sin(t * 0.9f)));
-        } else if (currentWeather.contains("Spring")) {
-            // ฤดูใบไม้ผลิ - สีเขียวอ่อน
-            topColor = new Color(
-                    (int) (150 + 40 * Math.sin(t)),
-                    (int) (220 + 25 * Math.cos(t * 0.8f)),
-                    (int) (180 + 35 * Math.sin(t * 1.2f)));
-            bottomColor = new Color(
-                    (int) (200 + 25 * Math.sin(t * 0.5f)),
-                    (int) (255 - 15 * Math.cos(t * 0.7f)),
-                    (int) (220 + 20 * Math.sin(t * 0.9f)));
-        } else {
-            // ปกติ - ฟ้าใส
-            topColor = new Color(
-                    (int) (135 + 50 * Math.sin(t)),
-                    (int) (206 + 30 * Math.cos(t * 0.8f)),
-                    (int) (250 + 5 * Math.sin(t * 1.2f)));
-            bottomColor = new Color(
-                    (int) (255 - 20 * Math.sin(t * 0.5f)),
-                    (int) (240 + 15 * Math.cos(t * 0.7f)),
-                    (int) (245 + 10 * Math.sin(t * 0.9f)));
-        }
+        Color topColor = weather.sky.topColor(t);
+        Color bottomColor = weather.sky.bottomColor(t);
 
         GradientPaint skyGradient = new GradientPaint(0, 0, topColor, 0, getHeight(), bottomColor);
         g2d.setPaint(skyGradient);
         g2d.fillRect(0, 0, getWidth(), getHeight());
 
         // Add animated clouds ที่เปลี่ยนสีตาม weather
-        drawAnimatedClouds(g2d);
+        drawAnimatedClouds(g2d, weather);
 
         // เพิ่มเอฟเฟกต์พิเศษตาม weather
-        drawWeatherBackgroundEffects(g2d);
+        weather.backgroundEffect.draw(this, g2d);
     }
 
     private void drawWeatherInfo(Graphics2D g2d) {
@@ -881,7 +1072,7 @@ public class LofiTaoBinVendingMachine extends JPanel implements ActionListener,
         Color borderColor = new Color(
                 (int) (200 + 50 * Math.sin(t)),
                 (int) (150 + 80 * Math.cos(t * 0.8f)),
-                (int) (255 - 30 * Math.sin(t * 1.2f)),
+                channel(255 - 30 * Math.sin(t * 1.2f)),
                 180);
         g2d.setColor(borderColor);
         g2d.setStroke(new BasicStroke(2, BasicStroke.CAP_ROUND, BasicStroke.JOIN_ROUND));
@@ -895,12 +1086,14 @@ public class LofiTaoBinVendingMachine extends JPanel implements ActionListener,
         // Current weather with larger font
         g2d.setFont(new Font("Arial", Font.BOLD, 16));
         g2d.setColor(new Color(60, 60, 80));
-        g2d.drawString(currentWeather, panelX + 10, panelY + 40);
+        g2d.drawString(currentWeather.label, panelX + 10, panelY + 40);
 
         // Weather change countdown
         g2d.setFont(new Font("Arial", Font.PLAIN, 10));
         g2d.setColor(new Color(120, 120, 140));
-        int remainingTime = (int) ((weatherDuration - weatherChangeTimer) / 60); // Convert to seconds
+        // Before the scene starts (e.g. while preloading) the full duration is still ahead
+        long remainingSteps = weatherTimeout != null ? weatherTimeout.getRemainingSteps() : (long) weatherDuration;
+        int remainingTime = (int) (remainingSteps / 60); // Convert to seconds
         String countdownText = "Changes in: " + Math.max(0, remainingTime) + "s";
 
         // Add highlight when about to change
@@ -912,37 +1105,39 @@ public class LofiTaoBinVendingMachine extends JPanel implements ActionListener,
         g2d.drawString(countdownText, panelX + 10, panelY + 60);
 
         // Add small animated weather particles
-        drawWeatherEffects(g2d, panelX, panelY, panelWidth, panelHeight);
-    }
-
-    private void drawWeatherEffects(Graphics2D g2d, int x, int y, int width, int height) {
-        // Add small visual effects based on current weather
-        if (currentWeather.contains("Rain") || currentWeather.contains("Thunderstorm")) {
-            // Rain drops
-            g2d.setColor(new Color(100, 150, 255, 150));
-            for (int i = 0; i < 8; i++) {
-                int dropX = x + 10 + (i * 15) + (int) (5 * Math.sin(time * 0.1f + i));
-                int dropY = y + 15 + (int) (10 * Math.sin(time * 0.08f + i * 0.5f));
-                g2d.fillOval(dropX, dropY, 2, 6);
-            }
-        } else if (currentWeather.contains("Snow")) {
-            // Snow flakes
-            g2d.setColor(new Color(255, 255, 255, 200));
-            for (int i = 0; i < 6; i++) {
-                int snowX = x + 15 + (i * 20) + (int) (3 * Math.sin(time * 0.05f + i));
-                int snowY = y + 20 + (int) (8 * Math.cos(time * 0.06f + i * 0.7f));
-                g2d.fillOval(snowX, snowY, 4, 4);
-            }
-        } else if (currentWeather.contains("Sunny")) {
-            // Sun rays
-            g2d.setColor(new Color(255, 220, 100, 180));
-            for (int i = 0; i < 6; i++) {
-                float angle = (float) (i * Math.PI / 3 + time * 0.02f);
-                int rayX = x + width - 30 + (int) (15 * Math.cos(angle));
-                int rayY = y + 25 + (int) (15 * Math.sin(angle));
-                g2d.setStroke(new BasicStroke(2, BasicStroke.CAP_ROUND, BasicStroke.JOIN_ROUND));
-                g2d.drawLine(x + width - 30, y + 25, rayX, rayY);
-            }
+        currentWeather.panelEffect.draw(this, g2d, panelX, panelY, panelWidth, panelHeight);
+    }
+
+    // Small visual effects inside the info panel, picked by the current weather
+    private void drawPanelRain(Graphics2D g2d, int x, int y, int width, int height) {
+        // Rain drops
+        g2d.setColor(new Color(100, 150, 255, 150));
+        for (int i = 0; i < 8; i++) {
+            int dropX = x + 10 + (i * 15) + (int) (5 * Math.sin(time * 0.1f + i));
+            int dropY = y + 15 + (int) (10 * Math.sin(time * 0.08f + i * 0.5f));
+            g2d.fillOval(dropX, dropY, 2, 6);
+        }
+    }
+
+    private void drawPanelSnow(Graphics2D g2d, int x, int y, int width, int height) {
+        // Snow flakes
+        g2d.setColor(new Color(255, 255, 255, 200));
+        for (int i = 0; i < 6; i++) {
+            int snowX = x + 15 + (i * 20) + (int) (3 * Math.sin(time * 0.05f + i));
+            int snowY = y + 20 + (int) (8 * Math.cos(time * 0.06f + i * 0.7f));
+            g2d.fillOval(snowX, snowY, 4, 4);
+        }
+    }
+
+    private void drawPanelSunRays(Graphics2D g2d, int x, int y, int width, int height) {
+        // Sun rays
+        g2d.setColor(new Color(255, 220, 100, 180));
+        for (int i = 0; i < 6; i++) {
+            float angle = (float) (i * Math.PI / 3 + time * 0.02f);
+            int rayX = x + width - 30 + (int) (15 * Math.cos(angle));
+            int rayY = y + 25 + (int) (15 * Math.sin(angle));
+            g2d.setStroke(new BasicStroke(2, BasicStroke.CAP_ROUND, BasicStroke.JOIN_ROUND));
+            g2d.drawLine(x + width - 30, y + 25, rayX, rayY);
         }
     }
 
@@ -970,18 +1165,9 @@ public class LofiTaoBinVendingMachine extends JPanel implements ActionListener,
     // g2d.drawString(message, textX, textY);
     // }
 
-    private void drawAnimatedClouds(Graphics2D g2d) {
+    private void drawAnimatedClouds(Graphics2D g2d, Weather weather) {
         // เปลี่ยนสีเมฆตาม weather
-        Color cloudColor;
-        if (currentWeather.contains("Night") || currentWeather.contains("Starry")) {
-            cloudColor = new Color(40, 40, 60, 100);
-        } else if (currentWeather.contains("Rain") || currentWeather.contains("Thunder")) {
-            cloudColor = new Color(60, 60, 70, 150);
-        } else if (currentWeather.contains("Snow")) {
-            cloudColor = new Color(255, 255, 255, 180);
-        } else {
-            cloudColor = new Color(255, 255, 255, 120);
-        }
+        Color cloudColor = weather.cloudColor;
 
         g2d.setColor(cloudColor);
         float t = time * 0.005f;
@@ -1003,39 +1189,23 @@ public class LofiTaoBinVendingMachine extends JPanel implements ActionListener,
     }
 
     // เพิ่มเอฟเฟกต์พื้นหลังตาม weather
-    private void drawWeatherBackgroundEffects(Graphics2D g2d) {
-        if (currentWeather.contains("Rain") || currentWeather.contains("Thunder")) {
-            // ฝนตกพื้นหลัง
-            g2d.setColor(new Color(100, 150, 255, 100));
-            for (int i = 0; i < 30; i++) {
-                int dropX = (int) (i * 25 + 10 * Math.sin(time * 0.1f + i));
-                int dropY = (int) ((time * 3 + i * 20) % getHeight());
-                g2d.fillOval(dropX, dropY, 2, 8);
-            }
-        } else if (currentWeather.contains("Snow")) {
-            // หิมะตกพื้นหลัง
-            g2d.setColor(new Color(255, 255, 255, 200));
-            for (int i = 0; i < 25; i++) {
-                int snowX = (int) (i * 30 + 15 * Math.sin(time * 0.05f + i));
-                int snowY = (int) ((time * 2 + i * 30) % getHeight());
-                g2d.fillOval(snowX, snowY, 5, 5);
-            }
-        } else if (currentWeather.contains("Starry") || currentWeather.contains("Night")) {
-            // ดาวระยิบระยับ
-            g2d.setColor(new Color(255, 255, 200, (int) (150 + 100 * Math.sin(time * 0.1f))));
-            for (int i = 0; i < 15; i++) {
-                int starX = 80 + i * 40;
-                int starY = 30 + (int) (20 * Math.sin(time * 0.03f + i));
-                drawStar(g2d, starX, starY, 3);
-            }
-        } else if (currentWeather.contains("Autumn")) {
-            // ใบไม้ร่วง
-            for (int i = 0; i < 20; i++) {
-                float leafX = (float) (i * 35 + 20 * Math.sin(time * 0.08f + i));
-                float leafY = (float) ((time * 1.5f + i * 25) % getHeight());
-                g2d.setColor(new Color(200, 100, 50, 150));
-                drawLeaf(g2d, (int) leafX, (int) leafY);
-            }
+    private void drawBackgroundStars(Graphics2D g2d) {
+        // ดาวระยิบระยับ
+        g2d.setColor(new Color(255, 255, 200, (int) (150 + 100 * Math.sin(time * 0.1f))));
+        for (int i = 0; i < 15; i++) {
+            int starX = 80 + i * 40;
+            int starY = 30 + (int) (20 * Math.sin(time * 0.03f + i));
+            drawStar(g2d, starX, starY, 3);
+        }
+    }
+
+    private void drawBackgroundLeaves(Graphics2D g2d) {
+        // ใบไม้ร่วง
+        for (int i = 0; i < 20; i++) {
+            float leafX = (float) (i * 35 + 20 * Math.sin(time * 0.08f + i));
+            float leafY = (float) ((time * 1.5f + i * 25) % getHeight());
+            g2d.setColor(new Color(200, 100, 50, 150));
+            drawLeaf(g2d, (int) leafX, (int) leafY);
         }
     }
 
@@ -1372,9 +1542,10 @@ public class LofiTaoBinVendingMachine extends JPanel implements ActionListener,
     }
 
     private void drawParticles(Graphics2D g2d) {
+        long now = timers.now();
         for (Particle particle : particles) {
             if (particle.isAlive()) {
-                int alpha = (int) (255 * particle.getAlpha());
+                int alpha = (int) (255 * particle.getAlpha(now));
                 g2d.setColor(new Color(255, 255, 255, alpha));
                 g2d.fillOval((int) particle.x, (int) particle.y, (int) particle.size, (int) particle.size);
             }
@@ -1384,63 +1555,31 @@ public class LofiTaoBinVendingMachine extends JPanel implements ActionListener,
     private void drawFallingItems(Graphics2D g2d) {
         for (FallingItem item : fallingItems) {
             if (item.isVisible) {
-                g2d.setColor(new Color(
-                        item.color.getRed(),
-                        item.color.getGreen(),
-                        item.color.getBlue(),
-                        (int) (255 * item.alpha)));
-
-                AffineTransform oldTransform = g2d.getTransform();
-                g2d.translate(item.x, item.y);
-                g2d.rotate(item.rotation);
-
-                // Draw falling cube
-                int halfSize = (int) (item.size / 2);
-                g2d.fillRoundRect(-halfSize, -halfSize, (int) item.size, (int) item.size, 5, 5);
-
-                // Add glow effect
-                g2d.setColor(new Color(
-                        item.color.getRed(),
-                        item.color.getGreen(),
-                        item.color.getBlue(),
-                        (int) (100 * item.alpha)));
-                g2d.fillRoundRect(-halfSize - 2, -halfSize - 2, (int) item.size + 4, (int) item.size + 4, 6, 6);
-
-                g2d.setTransform(oldTransform);
+                // Falling cube with its glow baked into the cached frame
+                spriteCache.draw(g2d, RotationSpriteCache.Shape.ROUND_RECT, item.color, item.size, true,
+                        item.rotation, item.x, item.y, item.alpha);
             }
         }
     }
 
+    // One fixed 1/60 s simulation step
     @Override
-    public void actionPerformed(ActionEvent e) {
+    public void update() {
         time++;
+        long mark = allocations.mark();
+        long span = tracer.begin();
 
-        // Update weather system - เร็วขึ้น!
-        weatherChangeTimer++;
-        if (weatherChangeTimer >= weatherDuration) {
-            String oldWeather = currentWeather;
-            // Make sure we get a different weather
-            do {
-                currentWeather = weatherEvents[random.nextInt(weatherEvents.length)];
-            } while (currentWeather.equals(oldWeather) && weatherEvents.length > 1);
-
-            weatherChangeTimer = 0;
-            weatherDuration = 120 + random.nextFloat() * 180; // 2-5 seconds instead of 5-10
-
-            // Add weather change effect particles
-            for (int i = 0; i < 15; i++) {
-                Particle weatherEffect = new Particle(
-                        random.nextFloat() * getWidth(),
-                        random.nextFloat() * 200);
-                weatherEffect.vx = (float) (Math.random() - 0.5) * 6;
-                weatherEffect.vy = (float) (Math.random() - 0.5) * 4;
-                weatherEffect.color = lofiColors[random.nextInt(lofiColors.length)];
-                weatherEffect.size = random.nextFloat() * 4 + 2;
-                particles.add(weatherEffect);
-            }
+        if (fadingWeather != null && ++weatherFadeStep >= weatherFadeSteps) {
+            endWeatherFade();
         }
+        snowCover.update(getWidth());
+        precipitation.update(getWidth(), getHeight(), floorY, snowCover);
+        lightning.update(currentWeather == Weather.THUNDERSTORM, getWidth(), getHeight());
+        mark = allocations.charge(AllocationLedger.Subsystem.WEATHER, mark);
+        span = tracer.end("LofiTaoBinVendingMachine.update.weather", span);
 
         // Handle machine dropping animation
+        prevMachineY = machineY;
         if (machineDropped && !machineOnGround) {
             machineVelocityY += 0.8f; // Gravity
             machineY += machineVelocityY;
@@ -1454,16 +1593,8 @@ public class LofiTaoBinVendingMachine extends JPanel implements ActionListener,
                     machineOnGround = true;
                     machineVelocityY = 0;
 
-                    // Start dispensing timer when machine lands
-                    dispensingTimer = new Timer(300 + random.nextInt(500), new ActionListener() {
-                        @Override
-                        public void actionPerformed(ActionEvent e) {
-                            dispenseRandomItem();
-                            // Reset timer with new random interval
-                            dispensingTimer.setDelay(300 + random.nextInt(500));
-                        }
-                    });
-                    dispensingTimer.start();
+                    // Start dispensing when machine lands
+                    scheduleDispense();
 
                     // Add landing particles
                     for (int i = 0; i < 30; i++) {
@@ -1475,29 +1606,24 @@ public class LofiTaoBinVendingMachine extends JPanel implements ActionListener,
                         landingEffect.vy = (float) (Math.random() * -5 - 2);
                         landingEffect.color = lofiColors[random.nextInt(lofiColors.length)];
                         landingEffect.size = random.nextFloat() * 5 + 2;
-                        particles.add(landingEffect);
+                        addParticle(landingEffect);
                     }
                 }
             }
         }
 
+        mark = allocations.charge(AllocationLedger.Subsystem.MACHINE, mark);
+        span = tracer.end("LofiTaoBinVendingMachine.update.machine", span);
+
         // Update falling items only if machine is on ground
         if (machineOnGround) {
-            for (FallingItem item : fallingItems) {
-                item.update(floorY, getWidth());
-            }
-
-            // Handle collisions between items
-            for (int i = 0; i < fallingItems.size(); i++) {
-                for (int j = i + 1; j < fallingItems.size(); j++) {
-                    FallingItem item1 = fallingItems.get(i);
-                    FallingItem item2 = fallingItems.get(j);
-                    if (item1.collidesWith(item2)) {
-                        item1.handleCollision(item2);
-                    }
-                }
-            }
+            stepBodies();
+        }
+        if (sleighActive) {
+            updateSleigh();
         }
+        mark = allocations.charge(AllocationLedger.Subsystem.ITEMS, mark);
+        span = tracer.end("LofiTaoBinVendingMachine.update.items", span);
 
         // Update particles
         particles.removeIf(particle -> !particle.isAlive());
@@ -1507,48 +1633,218 @@ public class LofiTaoBinVendingMachine extends JPanel implements ActionListener,
 
         // Add new particles randomly
         if (random.nextFloat() < 0.1f) {
-            particles.add(new Particle(random.nextFloat() * getWidth(), random.nextFloat() * getHeight()));
+            addParticle(new Particle(random.nextFloat() * getWidth(), random.nextFloat() * getHeight()));
         }
+        allocations.charge(AllocationLedger.Subsystem.PARTICLES, mark);
+        tracer.end("LofiTaoBinVendingMachine.update.particles", span);
+    }
 
-        repaint();
+    // Drinks and gift boxes share one update and one collision pass so they pile up together
+    private void stepBodies() {
+        FlightEvents.PhysicsStep stepEvent = new FlightEvents.PhysicsStep();
+        stepEvent.begin();
+        long span = tracer.begin();
+        int count = fallingItems.size() + activeGifts;
+        if (bodies.length < count) {
+            bodies = Arrays.copyOf(bodies, Math.max(count, bodies.length * 2));
+        }
+        int n = 0;
+        for (FallingItem item : fallingItems) {
+            bodies[n++] = item;
+        }
+        for (int i = 0; i < activeGifts; i++) {
+            bodies[n++] = giftPool[i];
+        }
+
+        for (int i = 0; i < n; i++) {
+            FallingItem body = bodies[i];
+            body.update(floorY - snowCover.heightAt((int) body.x), getWidth());
+        }
+
+        span = tracer.end("physics", span);
+
+        // Handle collisions between items. Sorted by left edge, each body only
+        // needs checking against the ones that start before its right edge
+        Arrays.sort(bodies, 0, n, BY_LEFT_EDGE);
+        int pairsTested = 0;
+        int contacts = 0;
+        for (int i = 0; i < n; i++) {
+            FallingItem item1 = bodies[i];
+            float rightEdge = item1.x + item1.size / 2;
+            for (int j = i + 1; j < n; j++) {
+                FallingItem item2 = bodies[j];
+                if (item2.x - item2.size / 2 >= rightEdge)
+                    break;
+                pairsTested++;
+                if (item1.collidesWith(item2)) {
+                    item1.handleCollision(item2);
+                    contacts++;
+                }
+            }
+        }
+        Arrays.fill(bodies, 0, n, null);
+        tracer.end("collision", span);
+
+        stepEvent.end();
+        if (stepEvent.shouldCommit()) {
+            stepEvent.bodies = n;
+            stepEvent.pairsTested = pairsTested;
+            stepEvent.contacts = contacts;
+            stepEvent.commit();
+        }
     }
 
-    @Override
-    public void mouseClicked(MouseEvent e) {
-        // Manual dispensing when machine is on ground
-        if (machineOnGround) {
-            dispenseRandomItem();
+    private void scheduleSleighPass() {
+        sleighTimeout = timers.schedule(30, () -> {
+            sleighActive = true;
+            sleighX = prevSleighX = -130;
+            nextBurstX = getWidth() / (float) (GIFT_BURSTS_PER_PASS + 1);
+        });
+    }
+
+    private void updateSleigh() {
+        prevSleighX = sleighX;
+        sleighX += SLEIGH_SPEED;
+        if (sleighX >= nextBurstX && nextBurstX < getWidth()) {
+            dropGiftBurst();
+            nextBurstX += getWidth() / (float) (GIFT_BURSTS_PER_PASS + 1);
+        }
+        if (sleighX > getWidth() + 20) {
+            sleighActive = false;
         }
     }
 
-    @Override
-    public void mousePressed(MouseEvent e) {
+    private void dropGiftBurst() {
+        // Gifts need the machine's floor to land on; a full pool just drops fewer
+        if (!machineOnGround)
+            return;
+        for (int n = 0; n < giftBurstSize && activeGifts < MAX_GIFTS; n++) {
+            giftPool[activeGifts++].spawn(
+                    sleighX + 20 + (random.nextFloat() - 0.5f) * 24,
+                    SLEIGH_Y + 10 + random.nextFloat() * 10,
+                    lofiColors[random.nextInt(lofiColors.length)],
+                    (random.nextFloat() - 0.5f) * 3 + SLEIGH_SPEED * 0.3f,
+                    1 + random.nextFloat() * 2,
+                    (random.nextFloat() - 0.5f) * 0.15f);
+        }
     }
 
-    @Override
-    public void mouseReleased(MouseEvent e) {
+    // Stops the sleigh and returns every gift to the pool
+    private void endSleighPass() {
+        if (sleighTimeout != null) {
+            sleighTimeout.cancel();
+            sleighTimeout = null;
+        }
+        sleighActive = false;
+        for (int i = 0; i < activeGifts; i++) {
+            giftPool[i].isVisible = false;
+        }
+        activeGifts = 0;
     }
 
-    @Override
-    public void mouseEntered(MouseEvent e) {
+    private void addParticle(Particle particle) {
+        scheduleExpiry(particle);
+        particles.add(particle);
+    }
+
+    private void scheduleExpiry(Particle particle) {
+        particle.expiresAt = timers.now() + particle.lifeSteps;
+        timers.schedule(particle.lifeSteps, () -> particle.alive = false);
+    }
+
+    private void scheduleDispense() {
+        // New random interval every time, like the old self-adjusting Swing timer
+        dispenseTimeout = timers.schedule(TimerWheel.millisToSteps(300 + random.nextInt(500)), () -> {
+            long mark = allocations.mark();
+            dispenseRandomItem(false);
+            scheduleDispense();
+            allocations.charge(AllocationLedger.Subsystem.ITEMS, mark);
+        });
+    }
+
+    private void scheduleWeatherChange() {
+        weatherTimeout = timers.schedule((long) weatherDuration, this::changeWeather);
+    }
+
+    // Update weather system - เร็วขึ้น!
+    private void changeWeather() {
+        long mark = allocations.mark();
+        Weather oldWeather = currentWeather;
+        // Make sure we get a different weather
+        do {
+            currentWeather = Weather.random(random);
+        } while (currentWeather == oldWeather);
+        if (oldWeather == Weather.SNOW_FALL) {
+            endSleighPass();
+        } else if (currentWeather == Weather.SNOW_FALL) {
+            scheduleSleighPass();
+        }
+        precipitation.setWeather(currentWeather.precipitation, currentWeather.precipitationDensity);
+        snowCover.setMelting(currentWeather.precipitation != PrecipitationField.Kind.SNOW);
+
+        // A change mid-fade restarts the blend; the incoming layer already shows the old weather
+        if (weatherFadeSteps > 0) {
+            if (fadingWeather != null) {
+                ImagePool.shared().release(outgoingWeatherLayer);
+                outgoingWeatherLayer = incomingWeatherLayer;
+                incomingWeatherLayer = null;
+            }
+            fadingWeather = oldWeather;
+            weatherFadeStep = 0;
+            weatherFadeFrame = 0;
+        }
+
+        FlightEvents.WeatherChanged weatherEvent = new FlightEvents.WeatherChanged();
+        if (weatherEvent.isEnabled()) {
+            weatherEvent.from = oldWeather.label;
+            weatherEvent.to = currentWeather.label;
+            weatherEvent.fadeSteps = weatherFadeSteps;
+            weatherEvent.precipitationDensity = currentWeather.precipitationDensity;
+            weatherEvent.commit();
+        }
+
+        weatherDuration = 120 + random.nextFloat() * 180; // 2-5 seconds instead of 5-10
+        scheduleWeatherChange();
+        mark = allocations.charge(AllocationLedger.Subsystem.WEATHER, mark);
+
+        // Add weather change effect particles
+        for (int i = 0; i < 15; i++) {
+            Particle weatherEffect = new Particle(
+                    random.nextFloat() * getWidth(),
+                    random.nextFloat() * 200);
+            weatherEffect.vx = (float) (Math.random() - 0.5) * 6;
+            weatherEffect.vy = (float) (Math.random() - 0.5) * 4;
+            weatherEffect.color = lofiColors[random.nextInt(lofiColors.length)];
+            weatherEffect.size = random.nextFloat() * 4 + 2;
+            addParticle(weatherEffect);
+        }
+        allocations.charge(AllocationLedger.Subsystem.PARTICLES, mark);
     }
 
     @Override
-    public void mouseExited(MouseEvent e) {
+    public void mouseClicked(MouseEvent e) {
+        // Manual dispensing when machine is on ground
+        if (machineOnGround) {
+            long mark = allocations.mark();
+            dispenseRandomItem(true);
+            allocations.charge(AllocationLedger.Subsystem.ITEMS, mark);
+        }
     }
 
     public static void main(String[] args) {
+        StartupProfiler.mainStarted();
         SwingUtilities.invokeLater(() -> {
             JFrame frame = new JFrame("立方体の自動販売機 - Lofi Cubic Vending Machine");
             frame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
-            frame.add(new LofiTaoBinVendingMachine());
+            frame.add(new SceneHost(600, 600, new LofiTaoBinVendingMachine()));
             frame.pack();
             frame.setLocationRelativeTo(null);
             frame.setVisible(true);
             frame.setResizable(false);
+            StartupProfiler.frameVisible();
 
-            // Add a subtle window title animation
-            Timer titleTimer = new Timer(2000, new ActionListener() {
+            // Add a subtle window title animation, driven by the shared frame scheduler
+            TimerWheel.shared().scheduleRepeating(TimerWheel.millisToSteps(2000), new Runnable() {
                 private String[] titles = {
                         "立方体の自動販売機 - Lofi Cubic Vending Machine",
                         "TAO BIN - Dreamy Beverage Dispenser ✨",
@@ -1558,12 +1854,12 @@ public class LofiTaoBinVendingMachine extends JPanel implements ActionListener,
                 private int titleIndex = 0;
 
                 @Override
-                public void actionPerformed(ActionEvent e) {
+                public void run() {
                     titleIndex = (titleIndex + 1) % titles.length;
-                    frame.setTitle(titles[titleIndex]);
+                    String title = titles[titleIndex];
+                    SwingUtilities.invokeLater(() -> frame.setTitle(title));
                 }
             });
-            titleTimer.start();
         });
     }
 }
\ No newline at end of file
@@ -0,0 +1,294 @@
+// MetricsEndpoint.java - Optional Prometheus text-format endpoint on localhost for fleet monitoring
+package projectCG;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryUsage;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+class MetricsEndpoint {
+    // Off unless -Dtaobin.metricsPort is set; then served at http://127.0.0.1:<port>/metrics
+    private static final MetricsEndpoint shared = new MetricsEndpoint(readPort());
+
+    // Upper bounds in seconds; the 60 fps budget sits between the third and fourth
+    private static final double[] FRAME_BUCKETS = { 0.004, 0.008, 0.012, 0.017, 0.020, 0.025, 0.033, 0.050, 0.100,
+            0.250, 1.0 };
+    private static final double[] TRANSITION_BUCKETS = { 0.025, 0.050, 0.100, 0.250, 0.500, 1.0, 2.5, 5.0 };
+
+    // Buckets are plain per-bucket adders; they are only made cumulative when scraped
+    private static final class Histogram {
+        final double[] bounds;
+        final LongAdder[] buckets;
+        final LongAdder sumNanos = new LongAdder();
+
+        Histogram(double[] bounds) {
+            this.bounds = bounds;
+            buckets = new LongAdder[bounds.length + 1];
+            for (int i = 0; i < buckets.length; i++) {
+                buckets[i] = new LongAdder();
+            }
+        }
+
+        void record(long nanos) {
+            double seconds = nanos / 1e9;
+            int bucket = 0;
+            while (bucket < bounds.length && seconds > bounds[bucket]) {
+                bucket++;
+            }
+            buckets[bucket].increment();
+            sumNanos.add(nanos);
+        }
+    }
+
+    private final boolean enabled;
+    private final int port;
+    private final Map<String, Histogram> frameTimes = new ConcurrentHashMap<>();
+    private final Map<String, Histogram> transitionTimes = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> transitionBuildNanos = new ConcurrentHashMap<>();
+    private final LongAdder timerDispensed = new LongAdder();
+    private final LongAdder manualDispensed = new LongAdder();
+    private volatile Consumer<Map<String, Integer>> entitySource;
+    private volatile String currentScene = "";
+
+    // Only touched by whichever thread presents frames
+    private String lastFrameScene;
+    private Histogram lastFrameHistogram;
+
+    private HttpServer server;
+    private ExecutorService executor;
+
+    MetricsEndpoint(int port) {
+        this.port = port;
+        this.enabled = port > 0;
+    }
+
+    static MetricsEndpoint shared() {
+        return shared;
+    }
+
+    private static int readPort() {
+        try {
+            int port = Integer.parseInt(System.getProperty("taobin.metricsPort", "0"));
+            if (port < 0 || port > 65535) {
+                System.err.println("Invalid taobin.metricsPort, using 0: " + port + " is not a port");
+                return 0;
+            }
+            return port;
+        } catch (NumberFormatException e) {
+            System.err.println("Invalid taobin.metricsPort, using 0: " + e.getMessage());
+            return 0;
+        }
+    }
+
+    boolean isEnabled() {
+        return enabled;
+    }
+
+    // Loopback only, so a kiosk never exposes it beyond the local scraper
+    synchronized void start() {
+        if (!enabled || server != null)
+            return;
+        try {
+            server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+            server.createContext("/metrics", this::handle);
+            executor = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "metrics-endpoint");
+                thread.setDaemon(true);
+                return thread;
+            });
+            server.setExecutor(executor);
+            server.start();
+            System.out.println("Metrics on http://127.0.0.1:" + port + "/metrics");
+        } catch (IOException e) {
+            System.err.println("Error starting metrics endpoint: " + e.getMessage());
+            server = null;
+            stopExecutor();
+        }
+    }
+
+    synchronized void stop() {
+        if (server != null) {
+            server.stop(0);
+            server = null;
+        }
+        // The server doesn't own its executor, so each start/stop cycle would otherwise leave a thread behind
+        stopExecutor();
+    }
+
+    private void stopExecutor() {
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+    }
+
+    // Live entity counts are pulled at scrape time, so scenes pay nothing between scrapes
+    void setEntitySource(Consumer<Map<String, Integer>> source) {
+        entitySource = source;
+    }
+
+    void sceneChanged(String scene) {
+        currentScene = scene;
+    }
+
+    // Called once per presented frame with the gap since the previous present (0 for the first)
+    void framePresented(long frameNanos) {
+        if (!enabled || frameNanos <= 0)
+            return;
+        String scene = currentScene;
+        if (!scene.equals(lastFrameScene)) {
+            lastFrameScene = scene;
+            lastFrameHistogram = frameTimes.computeIfAbsent(scene, name -> new Histogram(FRAME_BUCKETS));
+        }
+        lastFrameHistogram.record(frameNanos);
+    }
+
+    void itemDispensed(boolean manual) {
+        if (!enabled)
+            return;
+        (manual ? manualDispensed : timerDispensed).increment();
+    }
+
+    void transitionFinished(String scene, long buildNanos, long firstFrameNanos) {
+        if (!enabled)
+            return;
+        transitionTimes.computeIfAbsent(scene, name -> new Histogram(TRANSITION_BUCKETS)).record(firstFrameNanos);
+        transitionBuildNanos.computeIfAbsent(scene, name -> new LongAdder()).add(buildNanos);
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            byte[] body = scrape().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        } catch (Exception e) {
+            System.err.println("Error serving metrics: " + e.getMessage());
+            exchange.sendResponseHeaders(500, -1);
+        } finally {
+            exchange.close();
+        }
+    }
+
+    String scrape() {
+        StringBuilder out = new StringBuilder(4096);
+
+        header(out, "taobin_frame_seconds", "histogram", "Time between presented frames, per scene");
+        for (Map.Entry<String, Histogram> entry : new TreeMap<>(frameTimes).entrySet()) {
+            histogram(out, "taobin_frame_seconds", "scene", entry.getKey(), entry.getValue());
+        }
+
+        header(out, "taobin_items_dispensed_total", "counter",
+                "Items dispensed by the machine; use rate() for the dispense rate");
+        sample(out, "taobin_items_dispensed_total", "source=\"timer\"", timerDispensed.sum());
+        sample(out, "taobin_items_dispensed_total", "source=\"click\"", manualDispensed.sum());
+
+        header(out, "taobin_entities", "gauge", "Live entities in the current scene");
+        Consumer<Map<String, Integer>> source = entitySource;
+        if (source != null) {
+            Map<String, Integer> counts = new TreeMap<>();
+            source.accept(counts);
+            String scene = escape(currentScene);
+            for (Map.Entry<String, Integer> count : counts.entrySet()) {
+                sample(out, "taobin_entities",
+                        "scene=\"" + scene + "\",kind=\"" + escape(count.getKey()) + "\"", count.getValue());
+            }
+        }
+
+        header(out, "taobin_transition_seconds", "histogram",
+                "Time from a scene switch until its first frame was presented");
+        for (Map.Entry<String, Histogram> entry : new TreeMap<>(transitionTimes).entrySet()) {
+            histogram(out, "taobin_transition_seconds", "scene", entry.getKey(), entry.getValue());
+        }
+        header(out, "taobin_transition_build_seconds_total", "counter", "Time spent in scene init, per scene");
+        for (Map.Entry<String, LongAdder> entry : new TreeMap<>(transitionBuildNanos).entrySet()) {
+            sample(out, "taobin_transition_build_seconds_total", "scene=\"" + escape(entry.getKey()) + "\"",
+                    entry.getValue().sum() / 1e9);
+        }
+
+        header(out, "taobin_dropped_steps_total", "counter",
+                "Simulation steps skipped because a frame ran past the catch-up cap");
+        sample(out, "taobin_dropped_steps_total", null, FrameClock.shared().getDroppedSteps());
+
+        ImagePool pool = ImagePool.shared();
+        header(out, "taobin_image_pool_idle_bytes", "gauge", "Bytes held by idle pooled images");
+        sample(out, "taobin_image_pool_idle_bytes", null, pool.getIdleBytes());
+        header(out, "taobin_image_pool_capacity_bytes", "gauge", "Cap on idle pooled images");
+        sample(out, "taobin_image_pool_capacity_bytes", null, pool.getCapBytes());
+        header(out, "taobin_image_pool_acquires_total", "counter", "Image acquisitions by outcome");
+        sample(out, "taobin_image_pool_acquires_total", "outcome=\"reused\"", pool.getReuses());
+        sample(out, "taobin_image_pool_acquires_total", "outcome=\"allocated\"", pool.getAllocations());
+        header(out, "taobin_image_pool_evictions_total", "counter", "Idle images dropped to stay under the cap");
+        sample(out, "taobin_image_pool_evictions_total", null, pool.getEvictions());
+
+        MemoryUsage heap = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage();
+        header(out, "taobin_heap_bytes", "gauge", "Heap memory");
+        sample(out, "taobin_heap_bytes", "area=\"used\"", heap.getUsed());
+        sample(out, "taobin_heap_bytes", "area=\"committed\"", heap.getCommitted());
+        sample(out, "taobin_heap_bytes", "area=\"max\"", heap.getMax());
+        header(out, "taobin_gc_collections_total", "counter", "Garbage collections per collector");
+        StringBuilder gcTime = new StringBuilder();
+        header(gcTime, "taobin_gc_seconds_total", "counter", "Time spent in garbage collection per collector");
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            String label = "gc=\"" + escape(collector.getName()) + "\"";
+            sample(out, "taobin_gc_collections_total", label, Math.max(0, collector.getCollectionCount()));
+            sample(gcTime, "taobin_gc_seconds_total", label, Math.max(0, collector.getCollectionTime()) / 1e3);
+        }
+        out.append(gcTime);
+        return out.toString();
+    }
+
+    private static void histogram(StringBuilder out, String name, String labelName, String labelValue,
+            Histogram histogram) {
+        String label = labelName + "=\"" + escape(labelValue) + "\"";
+        long cumulative = 0;
+        for (int i = 0; i < histogram.buckets.length; i++) {
+            cumulative += histogram.buckets[i].sum();
+            String le = i < histogram.bounds.length ? Double.toString(histogram.bounds[i]) : "+Inf";
+            sample(out, name + "_bucket", label + ",le=\"" + le + "\"", cumulative);
+        }
+        sample(out, name + "_sum", label, histogram.sumNanos.sum() / 1e9);
+        sample(out, name + "_count", label, cumulative);
+    }
+
+    private static void header(StringBuilder out, String name, String type, String help) {
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    }
+
+    private static void sample(StringBuilder out, String name, String labels, long value) {
+        out.append(name);
+        if (labels != null) {
+            out.append('{').append(labels).append('}');
+        }
+        out.append(' ').append(value).append('\n');
+    }
+
+    private static void sample(StringBuilder out, String name, String labels, double value) {
+        out.append(name);
+        if (labels != null) {
+            out.append('{').append(labels).append('}');
+        }
+        out.append(' ').append(value).append('\n');
+    }
+
+    private static String escape(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+}
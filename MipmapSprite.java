@@ -0,0 +1,98 @@
+// MipmapSprite.java - Cached power-of-two scale levels for scaled sprites
+package projectCG;
+
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+
+class MipmapSprite {
+    // Paints the sprite centered at the origin at the given scale
+    interface Painter {
+        void paint(Graphics2D g2d, float scale);
+    }
+
+    private final Painter painter;
+    private final float baseScale;
+    private final int baseWidth;
+    private final int baseHeight;
+    private final int padding;
+    // Never changed once prepareAll has run, so snapshots can draw from the render thread
+    private final BufferedImage[] levels;
+
+    // baseScale is the largest scale the sprite is drawn at; each further level halves it
+    MipmapSprite(float baseScale, int levelCount, int baseWidth, int baseHeight, int padding, Painter painter) {
+        this.baseScale = baseScale;
+        this.baseWidth = baseWidth;
+        this.baseHeight = baseHeight;
+        this.padding = padding;
+        this.painter = painter;
+        this.levels = new BufferedImage[Math.max(1, levelCount)];
+    }
+
+    float getLevelScale(int level) {
+        return baseScale / (1 << level);
+    }
+
+    // Smallest level that is still at least as large as the requested scale, so
+    // the blit only ever minifies by less than 2x
+    int pickLevel(float scale) {
+        int level = 0;
+        while (level + 1 < levels.length && getLevelScale(level + 1) >= scale) {
+            level++;
+        }
+        return level;
+    }
+
+    BufferedImage getLevel(int level) {
+        if (levels[level] == null) {
+            levels[level] = renderLevel(getLevelScale(level));
+        }
+        return levels[level];
+    }
+
+    // Render every level up front so the first frames of the fall don't pay for it, and so
+    // draw never writes to the sprite
+    void prepareAll() {
+        for (int i = 0; i < levels.length; i++) {
+            getLevel(i);
+        }
+    }
+
+    private BufferedImage renderLevel(float levelScale) {
+        int width = (int) Math.ceil(baseWidth * levelScale) + padding * 2;
+        int height = (int) Math.ceil(baseHeight * levelScale) + padding * 2;
+        // Not pooled: a snapshot may still be drawing a level after its scene is disposed
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g2d = image.createGraphics();
+        try {
+            g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            g2d.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            g2d.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+            g2d.translate(width / 2.0, height / 2.0);
+            painter.paint(g2d, levelScale);
+        } finally {
+            g2d.dispose();
+        }
+        return image;
+    }
+
+    // Draws the sprite centered at (x, y), rotated and scaled, with a single bilinear blit
+    void draw(Graphics2D g2d, float x, float y, float rotation, float scale) {
+        int level = pickLevel(scale);
+        BufferedImage image = getLevel(level);
+        float relativeScale = scale / getLevelScale(level);
+
+        AffineTransform drawTransform = AffineTransform.getTranslateInstance(x, y);
+        drawTransform.rotate(rotation);
+        drawTransform.scale(relativeScale, relativeScale);
+        drawTransform.translate(-image.getWidth() / 2.0, -image.getHeight() / 2.0);
+
+        Object oldInterpolation = g2d.getRenderingHint(RenderingHints.KEY_INTERPOLATION);
+        g2d.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        g2d.drawImage(image, drawTransform, null);
+        if (oldInterpolation != null) {
+            g2d.setRenderingHint(RenderingHints.KEY_INTERPOLATION, oldInterpolation);
+        }
+    }
+}
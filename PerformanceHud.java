@@ -0,0 +1,279 @@
+// PerformanceHud.java - Toggleable overlay with frame timings, allocation and entity counts
+package projectCG;
+
+import java.awt.AlphaComposite;
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+class PerformanceHud {
+    // The panel is redrawn at 4 Hz; every other frame it is a single blit
+    private static final long REFRESH_NANOS = 250_000_000L;
+    private static final long WINDOW_NANOS = 5_000_000_000L;
+    private static final int HISTORY = 1024;
+    private static final int SPARKLINE_FRAMES = 120;
+    private static final double SPARKLINE_MAX_MS = 50.0;
+
+    private static final int PANEL_WIDTH = 250;
+    private static final int PANEL_HEIGHT = 150;
+    private static final int LEDGER_HEIGHT = 60;
+    private static final Font TITLE_FONT = new Font("Monospaced", Font.BOLD, 12);
+    private static final Font TEXT_FONT = new Font("Monospaced", Font.PLAIN, 11);
+    private static final Color BACKGROUND = new Color(20, 20, 30, 190);
+    private static final Color TEXT = new Color(230, 235, 245);
+    private static final Color DIM = new Color(150, 160, 180);
+    private static final Color BUDGET_LINE = new Color(120, 200, 120, 160);
+    private static final Color SPARKLINE = new Color(255, 200, 90);
+
+    private static final com.sun.management.ThreadMXBean THREADS = ThreadAllocation.threads();
+    private static final AllocationLedger.Subsystem[] SUBSYSTEMS = AllocationLedger.Subsystem.values();
+
+    private volatile boolean visible;
+
+    // Frame-to-frame times with when they ended, as a ring over the last few seconds
+    private final long[] frameNanos = new long[HISTORY];
+    private final long[] frameEnds = new long[HISTORY];
+    private final long[] sortScratch = new long[HISTORY];
+    private int frameHead = 0;
+    private int frameCount = 0;
+
+    // Sums since the last refresh, averaged into the panel
+    private long updateNanos, renderNanos, presentNanos, allocatedBytes;
+    private int updates, renders, presents, frames;
+
+    private final Map<String, Integer> counts = new LinkedHashMap<>();
+    // Ledger totals at the last refresh, so the panel shows this interval's allocation per subsystem
+    private final AllocationLedger ledger = AllocationLedger.shared();
+    private final long[] ledgerBytes = new long[SUBSYSTEMS.length];
+    private long ledgerFrames;
+    private String ledgerScene;
+    private BufferedImage panel;
+    private long lastRefresh = 0;
+
+    PerformanceHud() {
+        visible = Boolean.getBoolean("taobin.hud");
+    }
+
+    boolean isVisible() {
+        return visible;
+    }
+
+    void toggle() {
+        visible = !visible;
+    }
+
+    // Allocation counter of the calling thread, so a section can measure what it allocated
+    long allocatedBytes() {
+        return visible && THREADS != null ? THREADS.getCurrentThreadAllocatedBytes() : 0;
+    }
+
+    synchronized void recordUpdate(long nanos, long bytes) {
+        updateNanos += nanos;
+        allocatedBytes += bytes;
+        updates++;
+    }
+
+    synchronized void recordRender(long nanos, long bytes) {
+        renderNanos += nanos;
+        allocatedBytes += bytes;
+        renders++;
+    }
+
+    // Called once per frame that reaches the screen; frameNanos is 0 for the very first one
+    synchronized void recordPresent(long nanos, long frameNanos, long now) {
+        presentNanos += nanos;
+        presents++;
+        if (frameNanos > 0) {
+            this.frameNanos[frameHead] = frameNanos;
+            frameEnds[frameHead] = now;
+            frameHead = (frameHead + 1) % HISTORY;
+            frameCount = Math.min(HISTORY, frameCount + 1);
+            frames++;
+        }
+    }
+
+    // Whether the panel is due for a redraw; the host then gathers counts under its scene lock
+    boolean needsRefresh(long now) {
+        return visible && (panel == null || now - lastRefresh >= REFRESH_NANOS);
+    }
+
+    Map<String, Integer> countsToFill() {
+        counts.clear();
+        return counts;
+    }
+
+    void draw(Graphics2D g2d, String sceneName, long now) {
+        if (!visible)
+            return;
+        if (needsRefresh(now)) {
+            refresh(sceneName, now);
+        }
+        g2d.drawImage(panel, 10, 10, null);
+    }
+
+    void dispose() {
+        ImagePool.shared().release(panel);
+        panel = null;
+    }
+
+    private synchronized void refresh(String sceneName, long now) {
+        if (panel == null) {
+            panel = ImagePool.shared().acquire(PANEL_WIDTH, panelHeight(), BufferedImage.TYPE_INT_ARGB);
+        }
+        double elapsedSeconds = lastRefresh > 0 ? (now - lastRefresh) / 1e9 : 0;
+        lastRefresh = now;
+
+        // Percentiles over the frames that ended in the last five seconds
+        int windowed = 0;
+        for (int i = 0; i < frameCount; i++) {
+            int index = (frameHead - 1 - i + HISTORY) % HISTORY;
+            if (now - frameEnds[index] > WINDOW_NANOS)
+                break;
+            sortScratch[windowed++] = frameNanos[index];
+        }
+        Arrays.sort(sortScratch, 0, windowed);
+        double p50 = windowed > 0 ? sortScratch[windowed / 2] / 1e6 : 0;
+        double p99 = windowed > 0 ? sortScratch[Math.min(windowed - 1, windowed * 99 / 100)] / 1e6 : 0;
+
+        Graphics2D g = panel.createGraphics();
+        try {
+            g.setComposite(AlphaComposite.Src);
+            g.setColor(BACKGROUND);
+            g.fillRoundRect(0, 0, PANEL_WIDTH, panelHeight(), 10, 10);
+            g.setComposite(AlphaComposite.SrcOver);
+            g.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+
+            g.setFont(TITLE_FONT);
+            g.setColor(TEXT);
+            g.drawString(sceneName, 8, 16);
+            g.drawString(String.format("%3.0f fps", elapsedSeconds > 0 ? frames / elapsedSeconds : 0),
+                    PANEL_WIDTH - 62, 16);
+
+            g.setFont(TEXT_FONT);
+            g.drawString(String.format("upd %5.2f  rnd %5.2f  pre %5.2f ms",
+                    average(updateNanos, updates), average(renderNanos, renders),
+                    average(presentNanos, presents)), 8, 32);
+            g.drawString(String.format("frame p50 %5.1f  p99 %5.1f ms (5s)", p50, p99), 8, 46);
+
+            drawSparkline(g, 8, 52, PANEL_WIDTH - 16, 40);
+
+            String allocation = THREADS != null
+                    ? String.format("%.1f KB/frame", frames > 0 ? allocatedBytes / 1024.0 / frames : 0)
+                    : "n/a";
+            g.setColor(TEXT);
+            g.drawString("alloc " + allocation + "  GC " + gcCount(), 8, 108);
+
+            g.setColor(DIM);
+            StringBuilder line = new StringBuilder();
+            int y = 124;
+            for (Map.Entry<String, Integer> count : counts.entrySet()) {
+                String entry = count.getKey() + " " + count.getValue() + "  ";
+                if (line.length() + entry.length() > 38) {
+                    g.drawString(line.toString(), 8, y);
+                    line.setLength(0);
+                    y += 14;
+                }
+                line.append(entry);
+            }
+            if (line.length() > 0) {
+                g.drawString(line.toString(), 8, y);
+            }
+
+            if (ledger.isEnabled()) {
+                drawLedger(g, sceneName, PANEL_HEIGHT + 2);
+            }
+        } finally {
+            g.dispose();
+        }
+
+        updateNanos = renderNanos = presentNanos = allocatedBytes = 0;
+        updates = renders = presents = frames = 0;
+    }
+
+    private void drawSparkline(Graphics2D g, int x, int y, int width, int height) {
+        // Guide at the 60 fps budget
+        int budgetY = y + height - (int) (height * (FrameClock.STEP_NANOS / 1e6) / SPARKLINE_MAX_MS);
+        g.setColor(BUDGET_LINE);
+        g.drawLine(x, budgetY, x + width, budgetY);
+
+        int samples = Math.min(SPARKLINE_FRAMES, frameCount);
+        if (samples < 2)
+            return;
+        g.setColor(SPARKLINE);
+        g.setStroke(new BasicStroke(1f));
+        int previousX = 0, previousY = 0;
+        for (int i = 0; i < samples; i++) {
+            int index = (frameHead - samples + i + HISTORY) % HISTORY;
+            double ms = Math.min(SPARKLINE_MAX_MS, frameNanos[index] / 1e6);
+            int px = x + i * width / (SPARKLINE_FRAMES - 1);
+            int py = y + height - (int) (height * ms / SPARKLINE_MAX_MS);
+            if (i > 0) {
+                g.drawLine(previousX, previousY, px, py);
+            }
+            previousX = px;
+            previousY = py;
+        }
+    }
+
+    // KB per frame by subsystem since the last refresh, from -Dtaobin.allocations
+    private void drawLedger(Graphics2D g, String sceneName, int y) {
+        g.setColor(TEXT);
+        g.drawString("alloc KB/frame by subsystem", 8, y);
+        AllocationLedger.SceneAllocations allocations = ledger.get(sceneName);
+        if (allocations == null)
+            return;
+        if (!sceneName.equals(ledgerScene)) {
+            ledgerScene = sceneName;
+            ledgerFrames = 0;
+            Arrays.fill(ledgerBytes, 0);
+        }
+        long frames = allocations.frames();
+        long framesSince = Math.max(1, frames - ledgerFrames);
+        ledgerFrames = frames;
+
+        g.setColor(DIM);
+        StringBuilder line = new StringBuilder();
+        y += 14;
+        for (AllocationLedger.Subsystem subsystem : SUBSYSTEMS) {
+            long bytes = allocations.bytes(subsystem);
+            long since = bytes - ledgerBytes[subsystem.ordinal()];
+            ledgerBytes[subsystem.ordinal()] = bytes;
+            if (since == 0)
+                continue;
+            String entry = String.format("%s %.1f  ", subsystem.name().toLowerCase(), since / 1024.0 / framesSince);
+            if (line.length() + entry.length() > 38) {
+                g.drawString(line.toString(), 8, y);
+                line.setLength(0);
+                y += 14;
+            }
+            line.append(entry);
+        }
+        if (line.length() > 0) {
+            g.drawString(line.toString(), 8, y);
+        }
+    }
+
+    private int panelHeight() {
+        return ledger.isEnabled() ? PANEL_HEIGHT + LEDGER_HEIGHT : PANEL_HEIGHT;
+    }
+
+    private static double average(long nanos, int count) {
+        return count > 0 ? nanos / 1e6 / count : 0;
+    }
+
+    private static long gcCount() {
+        long count = 0;
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            count += Math.max(0, collector.getCollectionCount());
+        }
+        return count;
+    }
+}
@@ -0,0 +1,329 @@
+// PrecipitationField.java - Rain and snow as flat particle arrays, drawn straight into one pixel layer
+package projectCG;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.Arrays;
+import java.util.Random;
+
+class PrecipitationField {
+    enum Kind {
+        RAIN,
+        SNOW
+    }
+
+    private static final int MAX_DENSITY = 10000;
+    private static final int MAX_SPLASHES = 2048;
+    private static final int FADE_IN_STEPS = 16;
+    private static final int WIND_ROW_HEIGHT = 16;
+
+    // Depth layers, far to near: slower, smaller, fainter, and landing further back on the glass floor
+    private static final int LAYERS = 3;
+    private static final float[] LAYER_SPEED = { 0.45f, 0.7f, 1.0f };
+    private static final int[] LAYER_GROUND_OFFSET = { -50, -25, 0 };
+    private static final int[] RAIN_LENGTH = { 6, 9, 13 };
+    private static final int[] RAIN_ALPHA = { 70, 120, 170 };
+    private static final int[] SNOW_ALPHA = { 110, 170, 230 };
+
+    // Premultiplied colours per kind, layer and fade-in level, so drawing is a plain array store
+    private static final int[][][] COLORS = new int[2][LAYERS][FADE_IN_STEPS + 1];
+    private static final int SPLASH_COLOR = premultiplied(150, 170, 200, 255);
+
+    static {
+        for (int layer = 0; layer < LAYERS; layer++) {
+            for (int fade = 0; fade <= FADE_IN_STEPS; fade++) {
+                COLORS[Kind.RAIN.ordinal()][layer][fade] = premultiplied(
+                        RAIN_ALPHA[layer] * fade / FADE_IN_STEPS, 100, 150, 255);
+                COLORS[Kind.SNOW.ordinal()][layer][fade] = premultiplied(
+                        SNOW_ALPHA[layer] * fade / FADE_IN_STEPS, 255, 255, 255);
+            }
+        }
+    }
+
+    private final int capacity;
+    private final float scale;
+    private final float[] x;
+    private final float[] y;
+    private final float[] vy;
+    private final float[] phase;
+    private final byte[] layer;
+    private final byte[] kind;
+    private final byte[] age;
+    private int count = 0;
+
+    private final float[] splashX = new float[MAX_SPLASHES];
+    private final float[] splashY = new float[MAX_SPLASHES];
+    private final float[] splashVx = new float[MAX_SPLASHES];
+    private final float[] splashVy = new float[MAX_SPLASHES];
+    private final byte[] splashLife = new byte[MAX_SPLASHES];
+    private final short[] splashGround = new short[MAX_SPLASHES];
+    private int splashCount = 0;
+
+    private final Random random = new Random();
+    private Kind targetKind;
+    private int targetCount = 0;
+    private float[] windRows = new float[0];
+    private int width = 1;
+    private int height = 1;
+    private int groundY = 0;
+    private long time = 0;
+
+    private BufferedImage canvas;
+    private int[] pixels;
+
+    PrecipitationField() {
+        this.scale = readScale();
+        this.capacity = Math.max(0, Math.round(MAX_DENSITY * scale));
+        x = new float[capacity];
+        y = new float[capacity];
+        vy = new float[capacity];
+        phase = new float[capacity];
+        layer = new byte[capacity];
+        kind = new byte[capacity];
+        age = new byte[capacity];
+    }
+
+    private static float readScale() {
+        try {
+            return Math.max(0f, Float.parseFloat(System.getProperty("taobin.precipitationScale", "1")));
+        } catch (NumberFormatException e) {
+            System.err.println("Invalid taobin.precipitationScale, using 1: " + e.getMessage());
+            return 1f;
+        }
+    }
+
+    // Drops already falling finish their fall; only new ones follow the new weather
+    void setWeather(Kind kind, int density) {
+        targetKind = kind;
+        targetCount = kind == null ? 0 : Math.min(capacity, Math.round(density * scale));
+    }
+
+    int getCount() {
+        return count;
+    }
+
+    int getCount(Kind of) {
+        int matching = 0;
+        for (int i = 0; i < count; i++) {
+            if (kind[i] == of.ordinal()) {
+                matching++;
+            }
+        }
+        return matching;
+    }
+
+    // One fixed simulation step. groundY is where the nearest layer lands; near flakes pile up on snowCover
+    void update(int width, int height, int groundY, SnowCover snowCover) {
+        this.width = Math.max(1, width);
+        this.height = Math.max(1, height);
+        this.groundY = groundY;
+        time++;
+
+        updateWind();
+        updateParticles(snowCover);
+        updateSplashes();
+        spawn();
+    }
+
+    // Gusts sweep the whole sky; each band of rows sways a little on its own
+    private void updateWind() {
+        int rows = height / WIND_ROW_HEIGHT + 2;
+        if (windRows.length != rows) {
+            windRows = new float[rows];
+        }
+        float gust = (float) (1.2 * Math.sin(time * 0.0037) + 0.5 * Math.sin(time * 0.011));
+        for (int row = 0; row < rows; row++) {
+            windRows[row] = gust + 0.4f * (float) Math.sin(row * 0.45f + time * 0.03f);
+        }
+    }
+
+    private float windAt(float py) {
+        int row = (int) py / WIND_ROW_HEIGHT;
+        return windRows[Math.max(0, Math.min(windRows.length - 1, row))];
+    }
+
+    private void updateParticles(SnowCover snowCover) {
+        int snow = Kind.SNOW.ordinal();
+        int near = LAYERS - 1;
+        for (int i = 0; i < count; i++) {
+            int depth = layer[i];
+            float speed = LAYER_SPEED[depth];
+            if (kind[i] == snow) {
+                x[i] += windAt(y[i]) * 0.8f * speed + 0.5f * (float) Math.sin(phase[i] + time * 0.05f);
+            } else {
+                x[i] += windAt(y[i]) * 1.6f * speed;
+            }
+            y[i] += vy[i];
+            if (age[i] < FADE_IN_STEPS) {
+                age[i]++;
+            }
+
+            // Wrap sideways so wind never empties one side of the screen
+            if (x[i] < 0) {
+                x[i] += width;
+            } else if (x[i] >= width) {
+                x[i] -= width;
+            }
+
+            int ground = groundY + LAYER_GROUND_OFFSET[depth];
+            if (depth == near && snowCover != null) {
+                ground -= snowCover.heightAt((int) x[i]);
+            }
+            if (y[i] < ground)
+                continue;
+
+            if (kind[i] != snow && depth > 0) {
+                splash(x[i], ground, depth);
+            } else if (kind[i] == snow && depth == near && snowCover != null) {
+                snowCover.land((int) x[i]);
+            }
+            // Landed: fall again from the top while the weather still wants this many, otherwise retire
+            if (count <= targetCount && targetKind != null && kind[i] == targetKind.ordinal()) {
+                y[i] = -random.nextFloat() * 40;
+                x[i] = random.nextFloat() * width;
+            } else {
+                removeParticle(i);
+                i--;
+            }
+        }
+    }
+
+    private void spawn() {
+        if (targetKind == null || count >= targetCount)
+            return;
+        // Fill in over about a second, across the whole sky so slow snow doesn't take ages to arrive
+        int batch = Math.max(1, targetCount / 60);
+        for (int n = 0; n < batch && count < targetCount; n++) {
+            int i = count++;
+            int depth = random.nextInt(LAYERS);
+            layer[i] = (byte) depth;
+            kind[i] = (byte) targetKind.ordinal();
+            age[i] = 0;
+            x[i] = random.nextFloat() * width;
+            y[i] = random.nextFloat() * (groundY + LAYER_GROUND_OFFSET[depth]);
+            phase[i] = random.nextFloat() * 6.2832f;
+            float speed = LAYER_SPEED[depth];
+            vy[i] = targetKind == Kind.SNOW
+                    ? (0.8f + random.nextFloat() * 0.6f) * speed
+                    : (11f + random.nextFloat() * 4f) * speed;
+        }
+    }
+
+    private void removeParticle(int i) {
+        int last = --count;
+        x[i] = x[last];
+        y[i] = y[last];
+        vy[i] = vy[last];
+        phase[i] = phase[last];
+        layer[i] = layer[last];
+        kind[i] = kind[last];
+        age[i] = age[last];
+    }
+
+    private void splash(float px, int ground, int depth) {
+        for (int n = 0; n < depth && splashCount < MAX_SPLASHES; n++) {
+            int s = splashCount++;
+            splashX[s] = px;
+            splashY[s] = ground - 1;
+            splashVx[s] = (random.nextFloat() - 0.5f) * 3f;
+            splashVy[s] = -(2f + random.nextFloat() * 1.5f) * LAYER_SPEED[depth];
+            splashLife[s] = 12;
+            splashGround[s] = (short) ground;
+        }
+    }
+
+    private void updateSplashes() {
+        for (int s = 0; s < splashCount; s++) {
+            splashX[s] += splashVx[s];
+            splashY[s] += splashVy[s];
+            splashVy[s] += 0.35f;
+            if (--splashLife[s] > 0 && splashY[s] <= splashGround[s])
+                continue;
+
+            int last = --splashCount;
+            splashX[s] = splashX[last];
+            splashY[s] = splashY[last];
+            splashVx[s] = splashVx[last];
+            splashVy[s] = splashVy[last];
+            splashLife[s] = splashLife[last];
+            splashGround[s] = splashGround[last];
+            s--;
+        }
+    }
+
+    // Every drop, flake and splash goes into one int[] and reaches the screen as a single blit
+    void render(Graphics2D g2d, int width, int height) {
+        if (count == 0 && splashCount == 0)
+            return;
+
+        if (canvas == null || canvas.getWidth() != width || canvas.getHeight() != height) {
+            ImagePool.shared().release(canvas);
+            canvas = ImagePool.shared().acquire(width, height, BufferedImage.TYPE_INT_ARGB_PRE);
+            pixels = ((DataBufferInt) canvas.getRaster().getDataBuffer()).getData();
+        } else {
+            Arrays.fill(pixels, 0);
+        }
+
+        int snow = Kind.SNOW.ordinal();
+        for (int i = 0; i < count; i++) {
+            int color = COLORS[kind[i]][layer[i]][age[i]];
+            if (kind[i] == snow) {
+                drawFlake((int) x[i], (int) y[i], layer[i], color, width, height);
+            } else {
+                drawStreak(x[i], y[i], windAt(y[i]) * 1.6f * LAYER_SPEED[layer[i]], vy[i],
+                        RAIN_LENGTH[layer[i]], color, width, height);
+            }
+        }
+        for (int s = 0; s < splashCount; s++) {
+            plot((int) splashX[s], (int) splashY[s], SPLASH_COLOR, width, height);
+        }
+
+        g2d.drawImage(canvas, 0, 0, null);
+    }
+
+    // A streak trailing back along the drop's motion
+    private void drawStreak(float px, float py, float dx, float dy, int length, int color, int width, int height) {
+        float norm = (float) Math.sqrt(dx * dx + dy * dy);
+        if (norm == 0)
+            return;
+        float stepX = dx / norm;
+        float stepY = dy / norm;
+        for (int k = 0; k < length; k++) {
+            plot((int) (px - stepX * k), (int) (py - stepY * k), color, width, height);
+        }
+    }
+
+    private void drawFlake(int px, int py, int depth, int color, int width, int height) {
+        plot(px, py, color, width, height);
+        if (depth == 0)
+            return;
+        plot(px + 1, py, color, width, height);
+        plot(px, py + 1, color, width, height);
+        plot(px + 1, py + 1, color, width, height);
+        if (depth == 1)
+            return;
+        plot(px - 1, py, color, width, height);
+        plot(px, py - 1, color, width, height);
+        plot(px + 2, py + 1, color, width, height);
+        plot(px + 1, py + 2, color, width, height);
+    }
+
+    private void plot(int px, int py, int color, int width, int height) {
+        if (px >= 0 && px < width && py >= 0 && py < height) {
+            pixels[py * width + px] = color;
+        }
+    }
+
+    void dispose() {
+        count = 0;
+        splashCount = 0;
+        ImagePool.shared().release(canvas);
+        canvas = null;
+        pixels = null;
+    }
+
+    private static int premultiplied(int alpha, int red, int green, int blue) {
+        return alpha << 24 | (red * alpha / 255) << 16 | (green * alpha / 255) << 8 | (blue * alpha / 255);
+    }
+}
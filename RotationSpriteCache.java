@@ -0,0 +1,153 @@
+// RotationSpriteCache.java - Pre-rotated frames for small spinning shapes
+package projectCG;
+
+import java.awt.AlphaComposite;
+import java.awt.Color;
+import java.awt.Composite;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.util.HashMap;
+import java.util.Map;
+
+class RotationSpriteCache {
+    static final int ANGLE_STEPS = 48;
+    private static final int ALPHA_STEPS = 16;
+    private static final int MAX_ENTRIES = 160;
+
+    enum Shape {
+        SQUARE,
+        ROUND_RECT,
+        GIFT_BOX
+    }
+
+    private final Map<Long, BufferedImage[]> frames = new HashMap<>();
+    private final AlphaComposite[] alphaComposites = new AlphaComposite[ALPHA_STEPS + 1];
+
+    RotationSpriteCache() {
+        for (int i = 0; i <= ALPHA_STEPS; i++) {
+            alphaComposites[i] = AlphaComposite.getInstance(AlphaComposite.SRC_OVER, i / (float) ALPHA_STEPS);
+        }
+    }
+
+    // Draws the shape centered at (x, y) with an untransformed blit of the nearest pre-rotated frame
+    void draw(Graphics2D g2d, Shape shape, Color color, double size, boolean glow,
+            double rotation, double x, double y, double alpha) {
+        int alphaStep = (int) Math.round(Math.max(0, Math.min(1, alpha)) * ALPHA_STEPS);
+        if (alphaStep == 0)
+            return;
+
+        int sizeBucket = (int) Math.max(1, Math.round(size));
+        BufferedImage frame = getFrame(shape, color, sizeBucket, glow, rotation);
+
+        int drawX = (int) Math.round(x - frame.getWidth() / 2.0);
+        int drawY = (int) Math.round(y - frame.getHeight() / 2.0);
+
+        if (alphaStep == ALPHA_STEPS) {
+            g2d.drawImage(frame, drawX, drawY, null);
+        } else {
+            Composite originalComposite = g2d.getComposite();
+            g2d.setComposite(alphaComposites[alphaStep]);
+            g2d.drawImage(frame, drawX, drawY, null);
+            g2d.setComposite(originalComposite);
+        }
+    }
+
+    int size() {
+        return frames.size();
+    }
+
+    void clear() {
+        for (BufferedImage[] angles : frames.values()) {
+            for (BufferedImage image : angles) {
+                if (image != null)
+                    ImagePool.shared().release(image);
+            }
+        }
+        frames.clear();
+    }
+
+    private BufferedImage getFrame(Shape shape, Color color, int sizeBucket, boolean glow, double rotation) {
+        long key = ((long) (color.getRGB() & 0xFFFFFF) << 24)
+                | ((long) Math.min(sizeBucket, 0xFFFF) << 8)
+                | (shape.ordinal() << 1)
+                | (glow ? 1 : 0);
+
+        BufferedImage[] angles = frames.get(key);
+        if (angles == null) {
+            // Randomly coloured shapes could otherwise grow the cache without bound
+            if (frames.size() >= MAX_ENTRIES) {
+                clear();
+            }
+            angles = new BufferedImage[ANGLE_STEPS];
+            frames.put(key, angles);
+        }
+
+        double turns = rotation / (Math.PI * 2);
+        turns -= Math.floor(turns);
+        int index = (int) Math.round(turns * ANGLE_STEPS) % ANGLE_STEPS;
+        if (angles[index] == null) {
+            // Frames are filled on first use so a new colour never renders all angles in one frame
+            angles[index] = renderAngle(shape, color, sizeBucket, glow, index);
+        }
+        return angles[index];
+    }
+
+    // Pre-renders every angle of a shape that is known to be needed
+    void prepare(Shape shape, Color color, int size, boolean glow) {
+        for (int i = 0; i < ANGLE_STEPS; i++) {
+            getFrame(shape, color, size, glow, i * Math.PI * 2 / ANGLE_STEPS);
+        }
+    }
+
+    private BufferedImage renderAngle(Shape shape, Color color, int size, boolean glow, int angleIndex) {
+        // Bow and glow stick out past the body, so pad before taking the rotated diagonal
+        int extent = size + (glow ? 4 : 0) + (shape == Shape.GIFT_BOX ? 6 : 0);
+        int dimension = (int) Math.ceil(extent * Math.sqrt(2)) + 2;
+
+        BufferedImage image = ImagePool.shared().acquire(dimension, dimension, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g2d = image.createGraphics();
+        try {
+            g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            g2d.translate(dimension / 2.0, dimension / 2.0);
+            g2d.rotate(angleIndex * Math.PI * 2 / ANGLE_STEPS);
+            paintShape(g2d, shape, color, size, glow);
+        } finally {
+            g2d.dispose();
+        }
+        return image;
+    }
+
+    private void paintShape(Graphics2D g2d, Shape shape, Color color, int size, boolean glow) {
+        int halfSize = size / 2;
+        switch (shape) {
+            case SQUARE:
+                g2d.setColor(color);
+                g2d.fillRect(-halfSize, -halfSize, size, size);
+                break;
+            case ROUND_RECT:
+                g2d.setColor(color);
+                g2d.fillRoundRect(-halfSize, -halfSize, size, size, 5, 5);
+                break;
+            case GIFT_BOX:
+                // Gift box body
+                g2d.setColor(color);
+                g2d.fillRoundRect(-halfSize, -halfSize, size, size, 3, 3);
+
+                // Gift ribbon
+                g2d.setColor(Color.RED);
+                g2d.fillRect(-halfSize, -2, size, 4); // Horizontal ribbon
+                g2d.fillRect(-2, -halfSize, 4, size); // Vertical ribbon
+
+                // Gift bow
+                g2d.fillOval(-4, -halfSize - 2, 8, 6);
+                break;
+        }
+
+        if (glow) {
+            // Glow is laid over the body the same way the direct drawing did it
+            g2d.setColor(new Color(color.getRed(), color.getGreen(), color.getBlue(), 100));
+            g2d.fillRoundRect(-halfSize - 2, -halfSize - 2, size + 4, size + 4, 6, 6);
+        }
+    }
+}
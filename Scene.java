@@ -0,0 +1,34 @@
+// Scene.java - One stage of the show, driven by the shared SceneHost
+package projectCG;
+
+import java.awt.Graphics2D;
+import java.awt.event.MouseEvent;
+import java.util.Map;
+
+interface Scene {
+    // Called when the scene becomes current, on the thread that runs the simulation
+    void init(SceneHost host);
+
+    // One fixed 1/60 s simulation step
+    void update();
+
+    // Draws the whole frame; the target is the host's back buffer (or a scratch image when preloading)
+    void render(Graphics2D g2d, int width, int height);
+
+    // Called once the host has moved on to the next scene
+    void dispose();
+
+    // A scene that can copy its state returns an immutable picture here so the pipelined
+    // host can render it while the next step runs; null renders the live scene instead
+    default FramePipeline.Snapshot snapshot(int width, int height) {
+        return null;
+    }
+
+    // Live entity counts for the performance overlay, e.g. "particles" -> 40; called under the host's scene lock
+    default void countEntities(Map<String, Integer> counts) {
+    }
+
+    // Clicks are queued by the host and delivered between steps
+    default void mouseClicked(MouseEvent e) {
+    }
+}
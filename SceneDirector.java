@@ -0,0 +1,73 @@
+// SceneDirector.java - Builds and warms the next scene in the background while the current one plays
+package projectCG;
+
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.function.Supplier;
+
+class SceneDirector<T extends Scene> {
+    private final String name;
+    private final Supplier<T> factory;
+    private final FutureTask<T> task;
+
+    private SceneDirector(String name, Supplier<T> factory, int width, int height) {
+        this.name = name;
+        this.factory = factory;
+        this.task = new FutureTask<>(() -> {
+            long start = System.nanoTime();
+            T scene = factory.get();
+            warmUp(scene, width, height);
+            System.out.println(name + " preloaded in " + (System.nanoTime() - start) / 1_000_000 + " ms");
+            return scene;
+        });
+    }
+
+    // Starts building the scene on a low-priority daemon thread, warmed at the host's size
+    static <T extends Scene> SceneDirector<T> preload(String name, SceneHost host, Supplier<T> factory) {
+        SceneDirector<T> director = new SceneDirector<>(name, factory, host.getSceneWidth(),
+                host.getSceneHeight());
+        Thread thread = new Thread(director.task, "preload-" + name);
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        thread.start();
+        return director;
+    }
+
+    boolean isReady() {
+        return task.isDone();
+    }
+
+    // Hands over the warmed scene. If the preload is still running this waits for it
+    // rather than starting a second copy; if it failed the scene is built here as before
+    T take() {
+        try {
+            if (!task.isDone()) {
+                System.out.println("Waiting for " + name + " to finish preloading");
+            }
+            return task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            System.err.println("Interrupted while preloading " + name + ": " + e.getMessage());
+        } catch (ExecutionException e) {
+            System.err.println("Error preloading " + name + ": " + e.getCause());
+        }
+        return factory.get();
+    }
+
+    // Render one throwaway frame so fonts, gradients and sprite caches are loaded off the EDT
+    private static void warmUp(Scene scene, int width, int height) {
+        BufferedImage scratch = ImagePool.shared().acquire(width, height, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g2d = scratch.createGraphics();
+        try {
+            g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            g2d.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            scene.render(g2d, width, height);
+        } finally {
+            g2d.dispose();
+            ImagePool.shared().release(scratch);
+        }
+    }
+}
@@ -0,0 +1,662 @@
+// SceneHost.java - The single long-lived panel, back buffer and loop that every scene runs in
+package projectCG;
+
+import java.awt.Dimension;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.awt.event.KeyEvent;
+import java.awt.event.MouseEvent;
+import java.awt.event.MouseListener;
+import java.awt.image.BufferedImage;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import javax.swing.AbstractAction;
+import javax.swing.JPanel;
+import javax.swing.KeyStroke;
+import javax.swing.Timer;
+
+class SceneHost extends JPanel implements ActionListener, MouseListener {
+    private final Timer timer;
+    private final FrameClock clock = FrameClock.shared();
+    private final TimerWheel timers = TimerWheel.shared();
+    private final ImagePool imagePool = ImagePool.shared();
+    private final SceneLifecycleTracker lifecycle = SceneLifecycleTracker.shared();
+    private final PerformanceHud hud = new PerformanceHud();
+    private final MetricsEndpoint metrics = MetricsEndpoint.shared();
+    private final LatencyRecorder latency = LatencyRecorder.shared();
+    private final AllocationLedger allocations = AllocationLedger.shared();
+    private final TraceRecorder tracer = TraceRecorder.shared();
+    private final SceneReporter reporter = SceneReporter.shared();
+    // Stall watchdog heartbeats, which only beat when pipelined; the watchdog probes the EDT itself
+    private final StallWatchdog.Heartbeat simulationBeat = StallWatchdog.shared().heartbeat("simulation");
+    private final StallWatchdog.Heartbeat renderBeat = StallWatchdog.shared().heartbeat("render");
+    private volatile long framesPresented;
+    // Only touched on the EDT, which presents every frame
+    private long lastPresent = -1;
+
+    // The last update's time goes into the next frame event, and a cut stays open until the
+    // new scene's first frame is on screen; openTransitionScene is written last and read first
+    private volatile long lastUpdateNanos;
+    private volatile String openTransitionScene;
+    private volatile FlightEvents.SceneTransition openTransitionEvent;
+    private volatile long openTransitionStart;
+    private volatile long openTransitionBuildNanos;
+    private final Map<String, Integer> flightCounts = new HashMap<>();
+    // Never committed; asks whether a recording wants frame events without allocating one per frame
+    private final FlightEvents.FrameRendered frameEventProbe = new FlightEvents.FrameRendered();
+
+    // What a frame event says about the entities, counted on the thread that stepped the scene
+    private static final class FrameEntities {
+        final String scene;
+        final int total;
+        final String counts;
+
+        FrameEntities(String scene, int total, String counts) {
+            this.scene = scene;
+            this.total = total;
+            this.counts = counts;
+        }
+    }
+
+    // Steps and live renders of the current scene never overlap; only matters when pipelined
+    private final Object sceneLock = new Object();
+    private Scene current;
+    private volatile String currentName = "";
+    private Scene pending;
+    private boolean pendingStarted = false;
+    private TransitionCompositor.Style pendingStyle;
+    private int pendingDuration;
+    private final ConcurrentLinkedQueue<MouseEvent> clicks = new ConcurrentLinkedQueue<>();
+
+    // Double buffering shared by every scene
+    private BufferedImage backBuffer;
+    private Graphics2D backBufferGraphics;
+    private volatile FramePipeline pipeline;
+    // Pipelined, but the current scene has no snapshot, so the EDT steps and renders it as when unpipelined
+    private volatile boolean edtDriven = false;
+
+    SceneHost(int width, int height, Scene first) {
+        setPreferredSize(new Dimension(width, height));
+        setFocusable(true);
+        setDoubleBuffered(true);
+        addMouseListener(this);
+
+        // F3 shows or hides the performance overlay (on from the start with -Dtaobin.hud=true)
+        getInputMap(WHEN_IN_FOCUSED_WINDOW).put(KeyStroke.getKeyStroke(KeyEvent.VK_F3, 0), "toggleHud");
+        getActionMap().put("toggleHud", new AbstractAction() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                hud.toggle();
+                repaint();
+            }
+        });
+
+        // F4 writes the latency report now rather than waiting for exit (needs -Dtaobin.latencyReport)
+        getInputMap(WHEN_IN_FOCUSED_WINDOW).put(KeyStroke.getKeyStroke(KeyEvent.VK_F4, 0), "writeLatencyReport");
+        getActionMap().put("writeLatencyReport", new AbstractAction() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                latency.writeReportInBackground();
+            }
+        });
+
+        // F5 exports the last seconds of spans as a Chrome trace (needs -Dtaobin.trace)
+        getInputMap(WHEN_IN_FOCUSED_WINDOW).put(KeyStroke.getKeyStroke(KeyEvent.VK_F5, 0), "writeTrace");
+        getActionMap().put("writeTrace", new AbstractAction() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                tracer.writeTraceInBackground();
+            }
+        });
+
+        // Scraped from the endpoint's thread, so counts are taken between steps
+        metrics.setEntitySource(counts -> {
+            synchronized (sceneLock) {
+                if (current != null) {
+                    current.countEntities(counts);
+                }
+            }
+        });
+
+        StallWatchdog.shared().watchEventDispatchThread(() -> currentName, () -> framesPresented);
+
+        pending = first;
+        timer = new Timer(16, this); // ~60 FPS
+    }
+
+    // Switches scenes at the end of the current step; safe to call from a scene's update
+    void transitionTo(Scene next) {
+        transitionTo(next, null, 0);
+    }
+
+    // Same, but blends the last frame of the current scene into the first frame of the next
+    void transitionTo(Scene next, TransitionCompositor.Style style, int durationSteps) {
+        synchronized (sceneLock) {
+            pending = next;
+            pendingStarted = false;
+            pendingStyle = style;
+            pendingDuration = durationSteps;
+        }
+    }
+
+    // Hands control back to a scene that was already initialised, e.g. after a transition
+    void resume(Scene scene) {
+        synchronized (sceneLock) {
+            pending = scene;
+            pendingStarted = true;
+            pendingStyle = null;
+        }
+    }
+
+    Scene getScene() {
+        synchronized (sceneLock) {
+            return current;
+        }
+    }
+
+    // Size scenes lay themselves out for; the preferred size until the frame is laid out
+    int getSceneWidth() {
+        return getWidth() > 0 ? getWidth() : getPreferredSize().width;
+    }
+
+    int getSceneHeight() {
+        return getHeight() > 0 ? getHeight() : getPreferredSize().height;
+    }
+
+    void start() {
+        synchronized (sceneLock) {
+            applyPendingScene();
+        }
+        metrics.start();
+
+        if (FramePipeline.isEnabled() && pipeline == null) {
+            // Simulation and rendering move off the EDT; the timer only drives scenes without snapshots
+            edtDriven = false;
+            pipeline = new FramePipeline("SceneHost", getSceneWidth(), getSceneHeight(),
+                    this::simulate, this::repaint);
+            pipeline.start();
+        }
+        if (!timer.isRunning()) {
+            clock.reset();
+            timer.start();
+        }
+    }
+
+    void stop() {
+        timer.stop();
+        if (pipeline != null) {
+            pipeline.stop();
+            pipeline.flush();
+            pipeline = null;
+        }
+    }
+
+    @Override
+    public void addNotify() {
+        super.addNotify();
+        start();
+    }
+
+    @Override
+    public void removeNotify() {
+        stop();
+        synchronized (sceneLock) {
+            if (current != null) {
+                disposeQuietly(current);
+                current = null;
+            }
+        }
+        cleanupResources();
+        hud.dispose();
+        metrics.stop();
+        super.removeNotify();
+    }
+
+    private void cleanupResources() {
+        try {
+            if (backBufferGraphics != null) {
+                backBufferGraphics.dispose();
+                backBufferGraphics = null;
+            }
+            if (backBuffer != null) {
+                imagePool.release(backBuffer);
+                backBuffer = null;
+            }
+        } catch (Exception e) {
+            System.err.println("Error during cleanup: " + e.getMessage());
+        }
+    }
+
+    private void createBackBuffer() {
+        try {
+            if (getWidth() > 0 && getHeight() > 0) {
+                // Clean up old buffer; a size we've had before comes back from the pool
+                if (backBufferGraphics != null) {
+                    backBufferGraphics.dispose();
+                }
+                imagePool.release(backBuffer);
+
+                backBuffer = imagePool.acquire(getWidth(), getHeight(), BufferedImage.TYPE_INT_ARGB);
+                backBufferGraphics = backBuffer.createGraphics();
+                backBufferGraphics.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+                backBufferGraphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+                backBufferGraphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION,
+                        RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            }
+        } catch (Exception e) {
+            System.err.println("Error creating back buffer: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public void actionPerformed(ActionEvent e) {
+        if (pipeline != null && !edtDriven)
+            return;
+        long span = tracer.begin();
+        long reportMark = reporter.allocationMark();
+        long start = System.nanoTime();
+        long allocated = hud.allocatedBytes();
+        runSteps(clock.advance());
+        lastUpdateNanos = System.nanoTime() - start;
+        hud.recordUpdate(lastUpdateNanos, hud.allocatedBytes() - allocated);
+        latency.record(currentName, LatencyRecorder.Phase.UPDATE, lastUpdateNanos);
+        repaint();
+        reporter.allocated(reportMark);
+        tracer.end("actionPerformed", span);
+    }
+
+    @Override
+    protected void paintComponent(Graphics g) {
+        if (g == null)
+            return;
+
+        long paintSpan = tracer.begin();
+        long reportMark = reporter.allocationMark();
+        try {
+            super.paintComponent(g);
+
+            // Pipelined mode only blits the most recent frame finished by the render thread
+            FramePipeline pipeline = this.pipeline;
+            if (pipeline != null && !edtDriven) {
+                long presentStart = System.nanoTime();
+                boolean fresh = pipeline.present((Graphics2D) g);
+                long presented = System.nanoTime();
+                tracer.end("present", presentStart);
+                // Repaints before the first frame, or with nothing new to show, aren't frames
+                if (!fresh) {
+                    if (!pipeline.hasFrame() && backBuffer != null) {
+                        // Just taken back from the EDT: its last frame stays up until the render thread's first
+                        g.drawImage(backBuffer, 0, 0, null);
+                    }
+                    drawHud((Graphics2D) g, presented);
+                    return;
+                }
+                framePresented(presentStart, presented);
+                drawHud((Graphics2D) g, presented);
+                return;
+            }
+
+            // Create back buffer if needed
+            if (backBuffer == null || backBuffer.getWidth() != getWidth() || backBuffer.getHeight() != getHeight()) {
+                createBackBuffer();
+            }
+
+            if (backBufferGraphics == null)
+                return;
+
+            FlightEvents.FrameRendered frameEvent = new FlightEvents.FrameRendered();
+            frameEvent.begin();
+            long renderStart = System.nanoTime();
+            long allocated = hud.allocatedBytes();
+            synchronized (sceneLock) {
+                if (current != null) {
+                    current.render(backBufferGraphics, backBuffer.getWidth(), backBuffer.getHeight());
+                }
+            }
+            long presentStart = System.nanoTime();
+            tracer.end("render", renderStart);
+            hud.recordRender(presentStart - renderStart, hud.allocatedBytes() - allocated);
+
+            // Draw back buffer to screen
+            g.drawImage(backBuffer, 0, 0, null);
+            long presented = System.nanoTime();
+            tracer.end("present", presentStart);
+            latency.record(currentName, LatencyRecorder.Phase.RENDER, presentStart - renderStart);
+            commitFrameEvent(frameEvent, lastUpdateNanos, presentStart - renderStart, null);
+            framePresented(presentStart, presented);
+            drawHud((Graphics2D) g, presented);
+        } catch (Exception e) {
+            System.err.println("Error in paintComponent: " + e.getMessage());
+        } finally {
+            reporter.allocated(reportMark);
+            tracer.end("paintComponent", paintSpan);
+        }
+    }
+
+    // Every per-frame sink, fed from here once a new frame is on screen; the gap since the previous
+    // present is worked out once and is 0 for the very first frame
+    private void framePresented(long presentStart, long presented) {
+        long presentNanos = presented - presentStart;
+        long frameNanos = lastPresent >= 0 ? presented - lastPresent : 0;
+        lastPresent = presented;
+
+        StartupProfiler.firstFramePainted();
+        hud.recordPresent(presentNanos, frameNanos, presented);
+        metrics.framePresented(frameNanos);
+        latency.record(currentName, LatencyRecorder.Phase.PRESENT, presentNanos);
+        latency.framePresented(currentName, frameNanos);
+        allocations.framePresented();
+        framesPresented++;
+        reportFrame(frameNanos, presented);
+        finishTransition(presented);
+    }
+
+    // Drawn straight onto the screen, after the frame, so it never ends up in transition captures
+    private void drawHud(Graphics2D g2d, long now) {
+        if (!hud.isVisible())
+            return;
+        String sceneName = "";
+        synchronized (sceneLock) {
+            if (current != null) {
+                sceneName = current.getClass().getSimpleName();
+                if (hud.needsRefresh(now)) {
+                    current.countEntities(hud.countsToFill());
+                }
+            }
+        }
+        long mark = allocations.mark();
+        hud.draw(g2d, sceneName, now);
+        allocations.charge(AllocationLedger.Subsystem.HUD, mark);
+    }
+
+    // Feeds the per-scene report; entity peaks are sampled a few times a second under the scene lock
+    private void reportFrame(long frameNanos, long presented) {
+        reporter.framePresented(frameNanos);
+        if (!reporter.needsEntitySample(presented))
+            return;
+        synchronized (sceneLock) {
+            if (current != null) {
+                current.countEntities(reporter.entityCounts());
+            }
+        }
+        reporter.entitiesSampled(presented);
+    }
+
+    // Cheap when no recording wants it: the fields are only filled in once the threshold is passed.
+    // A pipelined frame brings the counts taken with its snapshot; null means the live scene is the
+    // frame just drawn, which is only true when unpipelined
+    private void commitFrameEvent(FlightEvents.FrameRendered event, long updateNanos, long renderNanos,
+            FrameEntities entities) {
+        event.end();
+        if (!event.shouldCommit())
+            return;
+        if (entities == null) {
+            entities = countFrameEntities();
+        }
+        event.updateTime = updateNanos;
+        event.renderTime = renderNanos;
+        event.scene = entities.scene;
+        event.entityCount = entities.total;
+        event.entities = entities.counts;
+        event.commit();
+    }
+
+    private FrameEntities countFrameEntities() {
+        synchronized (sceneLock) {
+            if (current == null)
+                return new FrameEntities("", 0, "{}");
+            flightCounts.clear();
+            current.countEntities(flightCounts);
+            int total = 0;
+            for (int count : flightCounts.values()) {
+                total += count;
+            }
+            return new FrameEntities(current.getClass().getSimpleName(), total, flightCounts.toString());
+        }
+    }
+
+    private void finishTransition(long presented) {
+        String scene = openTransitionScene;
+        if (scene == null)
+            return;
+        openTransitionScene = null;
+        long firstFrameNanos = presented - openTransitionStart;
+        metrics.transitionFinished(scene, openTransitionBuildNanos, firstFrameNanos);
+
+        FlightEvents.SceneTransition event = openTransitionEvent;
+        if (event != null) {
+            event.firstFrameTime = firstFrameNanos / 1_000_000;
+            event.commit();
+        }
+    }
+
+    // Pipelined mode: runs on the simulation thread and hands a renderable frame to the render thread
+    private FramePipeline.Snapshot simulate(int steps) {
+        FramePipeline.Snapshot snapshot;
+        simulationBeat.begin(currentName, framesPresented);
+        long reportMark = reporter.allocationMark();
+        try {
+            long span = tracer.begin();
+            long start = System.nanoTime();
+            long allocated = hud.allocatedBytes();
+            runSteps(steps);
+            lastUpdateNanos = System.nanoTime() - start;
+            hud.recordUpdate(lastUpdateNanos, hud.allocatedBytes() - allocated);
+            latency.record(currentName, LatencyRecorder.Phase.UPDATE, lastUpdateNanos);
+            snapshot = snapshotCurrent();
+            tracer.end("simulate", span);
+        } finally {
+            // A throwing step mustn't leave the thread looking busy to the watchdog
+            reporter.allocated(reportMark);
+            simulationBeat.end();
+        }
+        if (snapshot == null) {
+            // Nothing to render off-thread: the EDT takes this scene over until the next one starts
+            edtDriven = true;
+            FramePipeline running = pipeline;
+            if (running != null) {
+                running.suspend();
+            }
+            repaint();
+            return null;
+        }
+
+        // Nothing watches the render thread, so the bare snapshot goes through and a frame allocates nothing
+        boolean frameEvents = frameEventProbe.isEnabled();
+        if (!frameEvents && !hud.isVisible() && !tracer.isEnabled() && !latency.isEnabled()
+                && !StallWatchdog.shared().isEnabled() && !reporter.isEnabled())
+            return snapshot;
+
+        // Time the render thread's work on this frame; what it reports about the frame is taken here,
+        // between steps, so the render thread never needs the scene lock
+        String scene = currentName;
+        long frame = framesPresented;
+        long updateNanos = lastUpdateNanos;
+        FrameEntities entities = frameEvents ? countFrameEntities() : null;
+        return g2d -> {
+            renderBeat.begin(scene, frame);
+            long renderMark = reporter.allocationMark();
+            try {
+                FlightEvents.FrameRendered frameEvent = frameEvents ? new FlightEvents.FrameRendered() : null;
+                if (frameEvent != null) {
+                    frameEvent.begin();
+                }
+                long renderStart = System.nanoTime();
+                long renderAllocated = hud.allocatedBytes();
+                snapshot.render(g2d);
+                long renderNanos = System.nanoTime() - renderStart;
+                tracer.end("render", renderStart);
+                hud.recordRender(renderNanos, hud.allocatedBytes() - renderAllocated);
+                latency.record(scene, LatencyRecorder.Phase.RENDER, renderNanos);
+                if (frameEvent != null) {
+                    commitFrameEvent(frameEvent, updateNanos, renderNanos, entities);
+                }
+            } finally {
+                reporter.allocated(renderMark);
+                renderBeat.end();
+            }
+        };
+    }
+
+    private FramePipeline.Snapshot snapshotCurrent() {
+        int width = getSceneWidth();
+        int height = getSceneHeight();
+        synchronized (sceneLock) {
+            Scene scene = current;
+            if (scene == null)
+                return null;
+
+            return scene.snapshot(width, height);
+        }
+    }
+
+    private void runSteps(int steps) {
+        synchronized (sceneLock) {
+            for (int i = 0; i < steps; i++) {
+                applyPendingScene();
+                if (current == null)
+                    return;
+
+                long span = tracer.begin();
+                try {
+                    MouseEvent click;
+                    while ((click = clicks.poll()) != null) {
+                        current.mouseClicked(click);
+                    }
+                    current.update();
+                    span = tracer.end("update", span);
+                    timers.tick();
+                    tracer.end("timers", span);
+                } catch (Exception e) {
+                    System.err.println("Error updating scene: " + e.getMessage());
+                }
+            }
+            applyPendingScene();
+        }
+    }
+
+    private void applyPendingScene() {
+        if (pending == null)
+            return;
+
+        long span = tracer.begin();
+        Scene previous = current;
+        Scene next = pending;
+        boolean started = pendingStarted;
+        TransitionCompositor.Style style = pendingStyle;
+        pending = null;
+        pendingStarted = false;
+        pendingStyle = null;
+
+        BufferedImage outgoingFrame = style != null && previous != null ? captureFrame(previous) : null;
+        if (previous != null) {
+            disposeQuietly(previous);
+        }
+        if (!started) {
+            // Resuming after a blend isn't a new scene, so only real cuts are logged
+            lifecycle.transition(previous, next);
+            reporter.sceneFinished(next.getClass().getSimpleName(), "transition");
+            reporter.sceneStarted(next.getClass().getSimpleName());
+            FlightEvents.SceneTransition transitionEvent = new FlightEvents.SceneTransition();
+            transitionEvent.begin();
+            long buildStart = System.nanoTime();
+            try {
+                next.init(this);
+            } catch (Exception e) {
+                System.err.println("Error starting scene: " + e.getMessage());
+            }
+            long buildNanos = System.nanoTime() - buildStart;
+            tracer.end("init", buildStart);
+            if (transitionEvent.isEnabled()) {
+                transitionEvent.from = previous == null ? "" : previous.getClass().getSimpleName();
+                transitionEvent.to = next.getClass().getSimpleName();
+                transitionEvent.style = style == null ? "CUT" : style.name();
+                transitionEvent.buildTime = buildNanos / 1_000_000;
+                openTransitionEvent = transitionEvent;
+            } else {
+                openTransitionEvent = null;
+            }
+            openTransitionStart = buildStart;
+            openTransitionBuildNanos = buildNanos;
+            openTransitionScene = next.getClass().getSimpleName();
+        }
+
+        if (outgoingFrame != null) {
+            // Neither scene simulates during the blend; the compositor resumes the next one when done
+            TransitionCompositor compositor = new TransitionCompositor(style, pendingDuration, outgoingFrame,
+                    captureFrame(next), next);
+            compositor.init(this);
+            next = compositor;
+        }
+        current = next;
+        currentName = next.getClass().getSimpleName();
+        metrics.sceneChanged(currentName);
+        allocations.sceneChanged(currentName);
+
+        // Every new scene gets to try the pipeline; one without snapshots hands itself back to the EDT
+        FramePipeline running = pipeline;
+        if (edtDriven && running != null) {
+            edtDriven = false;
+            running.resume();
+        }
+
+        // Clicks aimed at the old scene shouldn't leak into the new one
+        clicks.clear();
+        tracer.end("transition", span);
+    }
+
+    private BufferedImage captureFrame(Scene scene) {
+        long span = tracer.begin();
+        int width = getSceneWidth();
+        int height = getSceneHeight();
+        BufferedImage frame = imagePool.acquire(width, height, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g2d = frame.createGraphics();
+        try {
+            g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            g2d.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            scene.render(g2d, width, height);
+        } catch (Exception e) {
+            System.err.println("Error capturing transition frame: " + e.getMessage());
+        } finally {
+            g2d.dispose();
+        }
+        tracer.end("captureFrame", span);
+        return frame;
+    }
+
+    // Once disposed, a scene is watched until the GC reclaims it
+    private void disposeQuietly(Scene scene) {
+        try {
+            scene.dispose();
+        } catch (Exception e) {
+            System.err.println("Error during cleanup: " + e.getMessage());
+        }
+        lifecycle.disposed(scene);
+    }
+
+    @Override
+    public void mouseClicked(MouseEvent e) {
+        clicks.add(e);
+    }
+
+    @Override
+    public void mousePressed(MouseEvent e) {
+    }
+
+    @Override
+    public void mouseReleased(MouseEvent e) {
+    }
+
+    @Override
+    public void mouseEntered(MouseEvent e) {
+    }
+
+    @Override
+    public void mouseExited(MouseEvent e) {
+    }
+}
@@ -0,0 +1,164 @@
+// SceneLifecycleTracker.java - Reports disposed scenes that never get collected and logs heap per transition
+package projectCG;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+class SceneLifecycleTracker {
+    private static final SceneLifecycleTracker shared = new SceneLifecycleTracker(readGraceSeconds());
+
+    // Weak reference to a disposed scene; cleared and enqueued once the scene is collected
+    private static final class DisposedScene extends WeakReference<Scene> {
+        final String name;
+        final long disposedAtNanos;
+        final long collectionsAtDispose;
+        boolean reported = false;
+
+        DisposedScene(Scene scene, ReferenceQueue<Scene> queue, long collections) {
+            super(scene, queue);
+            this.name = scene.getClass().getSimpleName();
+            this.disposedAtNanos = System.nanoTime();
+            this.collectionsAtDispose = collections;
+        }
+    }
+
+    private final long graceNanos;
+    private final ReferenceQueue<Scene> queue = new ReferenceQueue<>();
+    private final Set<DisposedScene> disposed = ConcurrentHashMap.newKeySet();
+    private final MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+    private final Map<String, Long> retainedAtLastExit = new HashMap<>();
+    private volatile int leaksReported = 0;
+    private Thread watcher;
+
+    SceneLifecycleTracker(long graceSeconds) {
+        this.graceNanos = Math.max(1, graceSeconds) * 1_000_000_000L;
+    }
+
+    static SceneLifecycleTracker shared() {
+        return shared;
+    }
+
+    private static long readGraceSeconds() {
+        try {
+            return Long.parseLong(System.getProperty("taobin.leakGraceSeconds", "60"));
+        } catch (NumberFormatException e) {
+            System.err.println("Invalid taobin.leakGraceSeconds, using 60: " + e.getMessage());
+            return 60;
+        }
+    }
+
+    // Called by the host right after a scene's dispose(); from here on nothing should keep it alive
+    void disposed(Scene scene) {
+        if (scene == null)
+            return;
+        disposed.add(new DisposedScene(scene, queue, totalCollections()));
+        startWatcher();
+    }
+
+    // Logs heap use at a cut. "After GC" is what survived the last collection of each heap pool,
+    // the closest thing to retained heap available without forcing a GC
+    void transition(Scene from, Scene to) {
+        if (from == null || to == null)
+            return;
+        try {
+            String fromName = from.getClass().getSimpleName();
+            MemoryUsage heap = memory.getHeapMemoryUsage();
+            long retained = retainedHeapBytes();
+
+            String growth = "";
+            synchronized (retainedAtLastExit) {
+                Long previous = retainedAtLastExit.put(fromName, retained);
+                if (previous != null) {
+                    growth = String.format(" (%+.1f MB since %s last exited)",
+                            (retained - previous) / 1048576.0, fromName);
+                }
+            }
+            System.out.println(String.format("Heap at %s -> %s: used %.1f MB, after last GC %.1f MB%s",
+                    fromName, to.getClass().getSimpleName(), heap.getUsed() / 1048576.0,
+                    retained / 1048576.0, growth));
+        } catch (Exception e) {
+            System.err.println("Error reading heap usage: " + e.getMessage());
+        }
+    }
+
+    int getLeaksReported() {
+        return leaksReported;
+    }
+
+    int getPendingCount() {
+        return disposed.size();
+    }
+
+    private synchronized void startWatcher() {
+        if (watcher != null)
+            return;
+        watcher = new Thread(this::watch, "scene-leak-detector");
+        watcher.setDaemon(true);
+        watcher.setPriority(Thread.MIN_PRIORITY);
+        watcher.start();
+    }
+
+    private void watch() {
+        while (true) {
+            try {
+                Reference<? extends Scene> collected = queue.remove(1000);
+                while (collected != null) {
+                    disposed.remove(collected);
+                    collected = queue.poll();
+                }
+                reportOverdue();
+            } catch (InterruptedException e) {
+                return;
+            } catch (Exception e) {
+                System.err.println("Error in scene leak detector: " + e.getMessage());
+            }
+        }
+    }
+
+    // A scene only counts as leaked once the grace period has passed and the GC has actually run since
+    private void reportOverdue() {
+        long now = System.nanoTime();
+        long collections = totalCollections();
+        for (DisposedScene scene : disposed) {
+            if (scene.reported || now - scene.disposedAtNanos < graceNanos
+                    || collections <= scene.collectionsAtDispose)
+                continue;
+            scene.reported = true;
+            leaksReported++;
+            System.err.println("Possible scene leak: " + scene.name + " disposed "
+                    + (now - scene.disposedAtNanos) / 1_000_000_000L + "s ago is still reachable after "
+                    + (collections - scene.collectionsAtDispose) + " GCs");
+        }
+    }
+
+    private static long totalCollections() {
+        long count = 0;
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            count += Math.max(0, collector.getCollectionCount());
+        }
+        return count;
+    }
+
+    private static long retainedHeapBytes() {
+        long retained = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() != MemoryType.HEAP)
+                continue;
+            // Pools that haven't been collected yet report zero, so count what they hold now
+            MemoryUsage afterGc = pool.getCollectionUsage();
+            retained += afterGc != null && afterGc.getUsed() > 0 ? afterGc.getUsed() : pool.getUsage().getUsed();
+        }
+        return retained;
+    }
+}
@@ -0,0 +1,233 @@
+// SceneReporter.java - Appends a JSON line of per-scene cost to a local file whenever a scene finishes
+package projectCG;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+class SceneReporter {
+    // Off unless -Dtaobin.sceneReport=<file>; one line per scene run is appended there
+    private static final SceneReporter shared = new SceneReporter(System.getProperty("taobin.sceneReport"));
+
+    // Entity counts are sampled, not taken every frame, since some scenes count by walking arrays
+    private static final long ENTITY_SAMPLE_NANOS = 250_000_000L;
+    // A present gap this many steps long means frames were skipped
+    private static final double DROPPED_FRAME_FACTOR = 1.5;
+
+    private final Path reportPath;
+    // Lines are built on the frame thread at the cut but appended to the file here, in order
+    private final ExecutorService writer;
+    private final com.sun.management.OperatingSystemMXBean os = operatingSystemBean();
+    private final com.sun.management.ThreadMXBean threads = ThreadAllocation.threads();
+
+    // The run in progress
+    private String scene;
+    private Instant startedAt;
+    private long startNanos;
+    private long startCpuNanos;
+    // Bytes allocated by the frame threads in sections the host brackets; see allocationMark
+    private final LongAdder allocatedBytes = new LongAdder();
+    private long frames;
+    private long droppedFrames;
+    private long frameNanosTotal;
+    private long maxFrameNanos;
+    private long lastEntitySample;
+    private final Map<String, Integer> sampledEntities = new LinkedHashMap<>();
+    private final Map<String, Integer> peakEntities = new LinkedHashMap<>();
+
+    SceneReporter(String reportPath) {
+        this.reportPath = reportPath == null || reportPath.isEmpty() ? null : Paths.get(reportPath);
+        if (this.reportPath != null) {
+            writer = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "scene-report-writer");
+                thread.setDaemon(true);
+                return thread;
+            });
+            // The last scene runs until the show is closed
+            Runtime.getRuntime().addShutdownHook(new Thread(this::finishOnExit, "scene-report"));
+        } else {
+            writer = null;
+        }
+    }
+
+    static SceneReporter shared() {
+        return shared;
+    }
+
+    private static com.sun.management.OperatingSystemMXBean operatingSystemBean() {
+        java.lang.management.OperatingSystemMXBean bean = ManagementFactory.getOperatingSystemMXBean();
+        return bean instanceof com.sun.management.OperatingSystemMXBean
+                ? (com.sun.management.OperatingSystemMXBean) bean
+                : null;
+    }
+
+    boolean isEnabled() {
+        return reportPath != null;
+    }
+
+    synchronized void sceneStarted(String scene) {
+        if (reportPath == null)
+            return;
+        this.scene = scene;
+        startedAt = Instant.now();
+        startNanos = System.nanoTime();
+        startCpuNanos = processCpuNanos();
+        allocatedBytes.reset();
+        frames = 0;
+        droppedFrames = 0;
+        frameNanosTotal = 0;
+        maxFrameNanos = 0;
+        lastEntitySample = 0;
+        peakEntities.clear();
+    }
+
+    // frameNanos is the gap since the previous present, 0 for the very first frame
+    synchronized void framePresented(long frameNanos) {
+        if (reportPath == null || scene == null || frameNanos <= 0)
+            return;
+        frames++;
+        frameNanosTotal += frameNanos;
+        maxFrameNanos = Math.max(maxFrameNanos, frameNanos);
+        if (frameNanos > FrameClock.STEP_NANOS * DROPPED_FRAME_FACTOR) {
+            droppedFrames += Math.round((double) frameNanos / FrameClock.STEP_NANOS) - 1;
+        }
+    }
+
+    // Whether the host should fill entityCounts() from the current scene on this frame
+    synchronized boolean needsEntitySample(long now) {
+        return reportPath != null && scene != null && now - lastEntitySample >= ENTITY_SAMPLE_NANOS;
+    }
+
+    Map<String, Integer> entityCounts() {
+        sampledEntities.clear();
+        return sampledEntities;
+    }
+
+    synchronized void entitiesSampled(long now) {
+        lastEntitySample = now;
+        for (Map.Entry<String, Integer> count : sampledEntities.entrySet()) {
+            peakEntities.merge(count.getKey(), count.getValue(), Math::max);
+        }
+    }
+
+    // Closes the run in progress and queues its line for the writer
+    void sceneFinished(String next, String endedBy) {
+        String line = finishRun(next, endedBy);
+        if (line == null)
+            return;
+        try {
+            writer.execute(() -> append(line));
+        } catch (RejectedExecutionException e) {
+            // A cut that lands while the exit hook is running; the show is closing anyway
+        }
+    }
+
+    // Lines still queued are written first; the exit line can't be queued once shutdown has begun
+    private void finishOnExit() {
+        String line = finishRun(null, "exit");
+        writer.shutdown();
+        try {
+            writer.awaitTermination(2, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (line != null) {
+            append(line);
+        }
+    }
+
+    // Builds the line for the run in progress and ends it; next is null when the show is closing
+    private synchronized String finishRun(String next, String endedBy) {
+        if (reportPath == null || scene == null)
+            return null;
+        long durationNanos = System.nanoTime() - startNanos;
+        StringBuilder line = new StringBuilder(256);
+        line.append('{');
+        field(line, "scene", scene).append(',');
+        field(line, "next", next).append(',');
+        field(line, "endedBy", endedBy).append(',');
+        field(line, "startedAt", startedAt.toString()).append(',');
+        line.append("\"durationMs\":").append(durationNanos / 1_000_000).append(',');
+        line.append("\"frames\":").append(frames).append(',');
+        line.append("\"droppedFrames\":").append(droppedFrames).append(',');
+        // Locale.ROOT so a comma-decimal locale can't turn the numbers into invalid JSON
+        double meanFrameMs = frames > 0 ? frameNanosTotal / 1e6 / frames : 0;
+        line.append("\"meanFrameMs\":").append(String.format(Locale.ROOT, "%.2f", meanFrameMs)).append(',');
+        line.append("\"maxFrameMs\":").append(String.format(Locale.ROOT, "%.2f", maxFrameNanos / 1e6)).append(',');
+        long cpuNanos = processCpuNanos();
+        line.append("\"cpuMs\":").append(cpuNanos >= 0 && startCpuNanos >= 0
+                ? (cpuNanos - startCpuNanos) / 1_000_000 : -1).append(',');
+        line.append("\"allocatedBytes\":").append(threads != null ? allocatedBytes.sum() : -1).append(',');
+        line.append("\"peakEntities\":{");
+        boolean first = true;
+        for (Map.Entry<String, Integer> peak : peakEntities.entrySet()) {
+            if (!first) {
+                line.append(',');
+            }
+            first = false;
+            line.append('"').append(escape(peak.getKey())).append("\":").append(peak.getValue());
+        }
+        line.append("}}\n");
+        scene = null;
+        return line.toString();
+    }
+
+    private void append(String line) {
+        try {
+            Path parent = reportPath.toAbsolutePath().getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+            try (Writer out = Files.newBufferedWriter(reportPath, StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+                out.write(line);
+            }
+        } catch (IOException e) {
+            System.err.println("Error writing scene report: " + e.getMessage());
+        }
+    }
+
+    private long processCpuNanos() {
+        return os != null ? os.getProcessCpuTime() : -1;
+    }
+
+    // Start of an update, render or present section on a frame thread; allocated(mark) closes it.
+    // Only frame threads are bracketed, so preload and writer threads never count toward a scene
+    long allocationMark() {
+        return reportPath != null && threads != null ? threads.getCurrentThreadAllocatedBytes() : 0;
+    }
+
+    void allocated(long mark) {
+        if (reportPath == null || threads == null)
+            return;
+        allocatedBytes.add(threads.getCurrentThreadAllocatedBytes() - mark);
+    }
+
+    private static StringBuilder field(StringBuilder line, String name, String value) {
+        line.append('"').append(escape(name)).append("\":");
+        if (value == null) {
+            line.append("null");
+        } else {
+            line.append('"').append(escape(value)).append('"');
+        }
+        return line;
+    }
+
+    private static String escape(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"");
+    }
+}
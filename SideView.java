@@ -2,35 +2,34 @@ package projectCG;
 
 import java.awt.BasicStroke;
 import java.awt.Color;
-import java.awt.Dimension;
 import java.awt.Font;
 import java.awt.FontMetrics;
 import java.awt.GradientPaint;
-import java.awt.Graphics;
 import java.awt.Graphics2D;
 import java.awt.RenderingHints;
-import java.awt.event.ActionEvent;
-import java.awt.event.ActionListener;
 import java.awt.geom.AffineTransform;
 import java.awt.geom.Ellipse2D;
 import java.awt.geom.Rectangle2D;
 import java.awt.geom.RoundRectangle2D;
-import java.awt.image.BufferedImage;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Random;
 import java.util.concurrent.CopyOnWriteArrayList;
 
-import javax.swing.JFrame;
-import javax.swing.JPanel;
-import javax.swing.Timer;
-
-public class SideView extends JPanel implements ActionListener {
+public class SideView implements Scene {
     private static final int WINDOW_WIDTH = 600;
     private static final int WINDOW_HEIGHT = 600;
 
-    private Timer timer;
+    private SceneHost host;
+    private int width = WINDOW_WIDTH;
+    private int height = WINDOW_HEIGHT;
+    private final FrameClock clock = FrameClock.shared();
+    private final AllocationLedger.SceneAllocations allocations =
+            AllocationLedger.shared().forScene(getClass().getSimpleName());
+    private final TraceRecorder tracer = TraceRecorder.shared();
+    private SceneDirector<LofiTaoBinVendingMachine> nextScenePreload;
     private VendingMachine vendingMachine;
     private List<Cloud> clouds;
     private List<RainDrop> rainDrops;
@@ -41,13 +40,6 @@ public class SideView extends JPanel implements ActionListener {
     private boolean animationComplete = false;
     private int completionTimer = 0;
 
-    // Static frame reference for transitions
-    private static JFrame frame;
-
-    // Double buffering for smoother rendering
-    private BufferedImage backBuffer;
-    private Graphics2D backBufferGraphics;
-
     // Lofi color palette
     private final Color SKY_COLOR = new Color(176, 196, 222, 200);
     private final Color GROUND_COLOR = new Color(101, 134, 118);
@@ -57,10 +49,6 @@ public class SideView extends JPanel implements ActionListener {
     private final Color RAIN_COLOR = new Color(173, 216, 230, 80);
 
     public SideView() {
-        this.setPreferredSize(new Dimension(WINDOW_WIDTH, WINDOW_HEIGHT));
-        this.setBackground(GROUND_COLOR);
-        this.setFocusable(true);
-        this.setDoubleBuffered(true);
         System.out.println("SideView initialized");
 
         // Initialize objects
@@ -87,39 +75,19 @@ public class SideView extends JPanel implements ActionListener {
                     random.nextFloat() * WINDOW_HEIGHT,
                     1 + random.nextFloat() * 2));
         }
-
-        // Start animation
-        timer = new Timer(16, this); // ~60 FPS
-    }
-
-    // Static method to set frame reference
-    public static void setFrame(JFrame f) {
-        frame = f;
-    }
-
-    public void startAnimation() {
-        if (timer != null && !timer.isRunning()) {
-            timer.start();
-        }
     }
 
-    public void stopAnimation() {
-        if (timer != null) {
-            timer.stop();
-        }
-        cleanupResources();
+    @Override
+    public void init(SceneHost host) {
+        this.host = host;
+        this.width = host.getSceneWidth();
+        this.height = host.getSceneHeight();
+        nextScenePreload = SceneDirector.preload("LofiTaoBinVendingMachine", host, LofiTaoBinVendingMachine::new);
     }
 
-    private void cleanupResources() {
+    @Override
+    public void dispose() {
         try {
-            if (backBufferGraphics != null) {
-                backBufferGraphics.dispose();
-                backBufferGraphics = null;
-            }
-            if (backBuffer != null) {
-                backBuffer.flush();
-                backBuffer = null;
-            }
             // Clear particle collections
             if (portalParticles != null)
                 portalParticles.clear();
@@ -135,118 +103,102 @@ public class SideView extends JPanel implements ActionListener {
     }
 
     @Override
-    public void addNotify() {
-        super.addNotify();
-        createBackBuffer();
-        startAnimation();
-    }
-
-    @Override
-    public void removeNotify() {
-        stopAnimation();
-        super.removeNotify();
-    }
-
-    private void createBackBuffer() {
-        try {
-            if (getWidth() > 0 && getHeight() > 0) {
-                // Clean up old buffer
-                if (backBufferGraphics != null) {
-                    backBufferGraphics.dispose();
-                }
-
-                backBuffer = new BufferedImage(getWidth(), getHeight(), BufferedImage.TYPE_INT_ARGB);
-                backBufferGraphics = backBuffer.createGraphics();
-                backBufferGraphics.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
-                backBufferGraphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
-            }
-        } catch (Exception e) {
-            System.err.println("Error creating back buffer: " + e.getMessage());
-        }
+    public void countEntities(Map<String, Integer> counts) {
+        counts.put("clouds", clouds.size());
+        counts.put("raindrops", rainDrops.size());
+        counts.put("portal", portalParticles.size());
+        counts.put("crash", crashParticles.size());
     }
 
     @Override
-    protected void paintComponent(Graphics g) {
-        if (g == null)
-            return;
-
-        try {
-            super.paintComponent(g);
-
-            // Create back buffer if needed
-            if (backBuffer == null || backBuffer.getWidth() != getWidth() || backBuffer.getHeight() != getHeight()) {
-                createBackBuffer();
-            }
-
-            if (backBufferGraphics == null)
-                return;
+    public void render(Graphics2D g2d, int width, int height) {
+        this.width = width;
+        this.height = height;
 
-            // Clear back buffer
-            backBufferGraphics.setColor(getBackground());
-            backBufferGraphics.fillRect(0, 0, getWidth(), getHeight());
+        // Clear back buffer
+        g2d.setColor(GROUND_COLOR);
+        g2d.fillRect(0, 0, getWidth(), getHeight());
 
-            // Enable anti-aliasing for smooth graphics
-            backBufferGraphics.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
-            backBufferGraphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+        // Enable anti-aliasing for smooth graphics
+        g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        g2d.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
 
-            // Draw animated gradient sky
-            drawLofiSky(backBufferGraphics);
+        // Draw animated gradient sky
+        long mark = allocations.mark();
+        long span = tracer.begin();
+        drawLofiSky(g2d);
+        mark = allocations.charge(AllocationLedger.Subsystem.SKY, mark);
+        span = tracer.end("SideView.render.sky", span);
 
-            // Draw rain
-            for (RainDrop rain : rainDrops) {
-                rain.draw(backBufferGraphics);
-            }
+        // Draw rain
+        for (RainDrop rain : rainDrops) {
+            rain.draw(g2d);
+        }
+        mark = allocations.charge(AllocationLedger.Subsystem.WEATHER, mark);
+        span = tracer.end("SideView.render.weather", span);
 
-            // Draw clouds (background layer)
-            for (Cloud cloud : clouds) {
-                if (!cloud.dispersing) {
-                    cloud.draw(backBufferGraphics);
-                }
+        // Draw clouds (background layer)
+        for (Cloud cloud : clouds) {
+            if (!cloud.dispersing) {
+                cloud.draw(g2d);
             }
+        }
+        mark = allocations.charge(AllocationLedger.Subsystem.CLOUDS, mark);
+        span = tracer.end("SideView.render.clouds", span);
 
-            // Draw subtle ground pattern
-            drawGround(backBufferGraphics);
+        // Draw subtle ground pattern
+        drawGround(g2d);
+        mark = allocations.charge(AllocationLedger.Subsystem.SKY, mark);
+        span = tracer.end("SideView.render.sky", span);
 
-            // Draw vending machine shadow first (on ground)
-            if (vendingMachine != null) {
-                vendingMachine.drawShadow(backBufferGraphics);
-            }
+        // Draw vending machine shadow first (on ground)
+        if (vendingMachine != null) {
+            vendingMachine.drawShadow(g2d);
+        }
 
-            // Draw vending machine
-            if (vendingMachine != null) {
-                vendingMachine.draw(backBufferGraphics);
-            }
+        // Draw vending machine
+        if (vendingMachine != null) {
+            vendingMachine.draw(g2d);
+        }
+        mark = allocations.charge(AllocationLedger.Subsystem.MACHINE, mark);
+        span = tracer.end("SideView.render.machine", span);
 
-            // Draw dispersing clouds (foreground layer)
-            for (Cloud cloud : clouds) {
-                if (cloud.dispersing) {
-                    cloud.draw(backBufferGraphics);
-                }
+        // Draw dispersing clouds (foreground layer)
+        for (Cloud cloud : clouds) {
+            if (cloud.dispersing) {
+                cloud.draw(g2d);
             }
+        }
+        mark = allocations.charge(AllocationLedger.Subsystem.CLOUDS, mark);
+        span = tracer.end("SideView.render.clouds", span);
 
-            // Draw portal particles
-            for (PortalParticle particle : portalParticles) {
-                particle.draw(backBufferGraphics);
-            }
+        // Draw portal particles
+        for (PortalParticle particle : portalParticles) {
+            particle.draw(g2d);
+        }
 
-            // Draw crash particles
-            for (CrashParticle particle : crashParticles) {
-                particle.draw(backBufferGraphics);
-            }
+        // Draw crash particles
+        for (CrashParticle particle : crashParticles) {
+            particle.draw(g2d);
+        }
 
-            // Draw floating particles for atmosphere
-            drawParticles(backBufferGraphics);
+        // Draw floating particles for atmosphere
+        drawParticles(g2d);
+        mark = allocations.charge(AllocationLedger.Subsystem.PARTICLES, mark);
+        span = tracer.end("SideView.render.particles", span);
 
-            // Draw title
-            drawTitle(backBufferGraphics);
+        // Draw title
+        drawTitle(g2d);
+        allocations.charge(AllocationLedger.Subsystem.OTHER, mark);
+        tracer.end("SideView.render.other", span);
+    }
 
-            // Draw back buffer to screen
-            Graphics2D g2d = (Graphics2D) g;
-            g2d.drawImage(backBuffer, 0, 0, null);
+    private int getWidth() {
+        return width;
+    }
 
-        } catch (Exception e) {
-            System.err.println("Error in paintComponent: " + e.getMessage());
-        }
+    private int getHeight() {
+        return height;
     }
 
     private void drawLofiSky(Graphics2D g2d) {
@@ -308,14 +260,19 @@ public class SideView extends JPanel implements ActionListener {
         g2d.drawString("~ 0.5s quick drop ~", WINDOW_WIDTH - 235, 75);
     }
 
+    // One fixed 1/60 s simulation step
     @Override
-    public void actionPerformed(ActionEvent e) {
+    public void update() {
         time++;
+        long mark = allocations.mark();
+        long span = tracer.begin();
 
         // Update rain
         for (RainDrop rain : rainDrops) {
             rain.update();
         }
+        mark = allocations.charge(AllocationLedger.Subsystem.WEATHER, mark);
+        span = tracer.end("SideView.update.weather", span);
 
         // Update clouds
         Iterator<Cloud> cloudIterator = clouds.iterator();
@@ -326,6 +283,8 @@ public class SideView extends JPanel implements ActionListener {
                 cloudIterator.remove();
             }
         }
+        mark = allocations.charge(AllocationLedger.Subsystem.CLOUDS, mark);
+        span = tracer.end("SideView.update.clouds", span);
 
         // Update vending machine
         if (vendingMachine != null && !animationComplete) {
@@ -347,6 +306,9 @@ public class SideView extends JPanel implements ActionListener {
             }
         }
 
+        mark = allocations.charge(AllocationLedger.Subsystem.MACHINE, mark);
+        span = tracer.end("SideView.update.machine", span);
+
         // Update portal particles
         List<PortalParticle> toRemove = new ArrayList<>();
         for (PortalParticle particle : portalParticles) {
@@ -363,6 +325,8 @@ public class SideView extends JPanel implements ActionListener {
             particle.update();
         }
         crashParticles.removeIf(CrashParticle::isDead);
+        mark = allocations.charge(AllocationLedger.Subsystem.PARTICLES, mark);
+        span = tracer.end("SideView.update.particles", span);
 
         // Add new background clouds occasionally
         if (random.nextInt(600) == 0 && clouds.size() < 10) {
@@ -370,33 +334,23 @@ public class SideView extends JPanel implements ActionListener {
                     random.nextInt(100) + 40,
                     30 + random.nextFloat() * 40));
         }
-
-        repaint();
+        allocations.charge(AllocationLedger.Subsystem.CLOUDS, mark);
+        tracer.end("SideView.update.clouds", span);
     }
 
     private void transitionToNextScene() {
         try {
-            if (frame != null) {
+            if (host != null) {
                 System.out.println("Transitioning to next scene...");
 
-                // Stop current animation
-                stopAnimation();
-
-                LofiTaoBinVendingMachine nextScene = new LofiTaoBinVendingMachine();
-                LofiTaoBinVendingMachine.setFrame(frame);
-                frame.setContentPane(nextScene);
-
-                // For now, just print a message
-                System.out.println("Ready to transition to next scene - please implement your next scene class!");
-
-                frame.revalidate();
-                frame.repaint();
-
-                nextScene.startAnimation();
+                // Built and warmed in the background while the fall played
+                LofiTaoBinVendingMachine nextScene = nextScenePreload != null ? nextScenePreload.take()
+                        : new LofiTaoBinVendingMachine();
+                host.transitionTo(nextScene, TransitionCompositor.Style.WIPE, 24);
 
                 System.out.println("Transition ready!");
             } else {
-                System.err.println("Frame reference is null - cannot transition");
+                System.err.println("Scene host is null - cannot transition");
             }
         } catch (Exception ex) {
             System.err.println("Could not transition to next scene: " + ex.getMessage());
@@ -589,6 +543,7 @@ public class SideView extends JPanel implements ActionListener {
     // VendingMachine class - Modified for 0.5 second fall
     class VendingMachine {
         float x, y;
+        float prevY, prevRotation;
         float fallDistance = 0; // 0 = far away (small), 1 = on ground (full size)
         float rotation = 0;
         float rotationSpeed;
@@ -599,10 +554,15 @@ public class SideView extends JPanel implements ActionListener {
         private static final int BASE_WIDTH = 70;
         private static final int BASE_HEIGHT = 100;
 
+        // Shelves and buttons only appear above scale 0.5, which is exactly the 1.0/0.5 level split
+        private final MipmapSprite machineSprite = new MipmapSprite(1.0f, 2, BASE_WIDTH, BASE_HEIGHT, 4,
+                this::paintDetailedMachine);
+
         public VendingMachine(float x, float y) {
             this.x = x;
-            this.y = y;
+            this.y = this.prevY = y;
             this.rotationSpeed = (random.nextFloat() - 0.5f) * 0.08f; // Faster rotation
+            machineSprite.prepareAll();
 
             // Create portal particles at spawn
             for (int i = 0; i < 8; i++) {
@@ -611,6 +571,9 @@ public class SideView extends JPanel implements ActionListener {
         }
 
         public void update() {
+            prevY = y;
+            prevRotation = rotation;
+
             if (!onGround) {
                 y += velocityY;
                 fallDistance = Math.min(1.0f, (y + 100) / MAX_FALL_DISTANCE);
@@ -649,80 +612,94 @@ public class SideView extends JPanel implements ActionListener {
         }
 
         private float getGroundY() {
+            // Render between the last two steps so the drop is smooth at any refresh rate
+            float renderY = clock.interpolate(prevY, y);
             if (onGround)
-                return y;
+                return renderY;
 
+            float renderDistance = Math.min(1.0f, (renderY + 100) / MAX_FALL_DISTANCE);
             float skyY = 60;
             float groundY = WINDOW_HEIGHT - 180;
-            return skyY + (groundY - skyY) * fallDistance;
+            return skyY + (groundY - skyY) * renderDistance;
         }
 
         public void draw(Graphics2D g2d) {
             float scale = getScale();
+            float drawY = getGroundY();
+            float drawRotation = clock.interpolate(prevRotation, rotation);
+
+            if (scale >= 0.3f) {
+                // Detailed machine comes from the cached mipmap levels
+                machineSprite.draw(g2d, x, drawY, drawRotation, scale);
+                return;
+            }
+
             float currentWidth = BASE_WIDTH * scale;
             float currentHeight = BASE_HEIGHT * scale;
-            float drawY = getGroundY();
 
             AffineTransform oldTransform = g2d.getTransform();
             g2d.translate(x, drawY);
-            g2d.rotate(rotation);
+            g2d.rotate(drawRotation);
 
-            if (scale < 0.3f) {
-                // Simple distant shape
-                g2d.setColor(new Color(180, 140, 140, (int) (255 * Math.min(1.0f, scale * 4))));
-                g2d.fill(new Rectangle2D.Float(-currentWidth / 2, -currentHeight / 2, currentWidth, currentHeight));
-            } else {
-                // Detailed vending machine
-                // Main body
-                g2d.setColor(VENDING_BASE);
-                g2d.fill(new RoundRectangle2D.Float(-currentWidth / 2, -currentHeight / 2, currentWidth, currentHeight,
-                        8 * scale, 8 * scale));
-
-                // Front panel
-                g2d.setColor(VENDING_ACCENT);
-                g2d.fill(new RoundRectangle2D.Float(-currentWidth / 2 + 4 * scale, -currentHeight / 2 + 8 * scale,
-                        currentWidth - 8 * scale, currentHeight / 1.8f, 5 * scale, 5 * scale));
-
-                // Glass section
-                g2d.setColor(new Color(200, 240, 255, 120));
-                g2d.fill(new RoundRectangle2D.Float(-currentWidth / 2 + 7 * scale, -currentHeight / 2 + 12 * scale,
-                        currentWidth - 14 * scale, currentHeight / 2.2f, 3 * scale, 3 * scale));
-
-                // Product shelves
-                if (scale > 0.5f) {
-                    g2d.setColor(new Color(255, 255, 255, 100));
-                    for (int i = 0; i < 4; i++) {
-                        g2d.fill(new Rectangle2D.Float(-currentWidth / 2 + 9 * scale,
-                                -currentHeight / 3 + i * 7 * scale,
-                                currentWidth - 18 * scale, 1.5f * scale));
-                    }
+            // Simple distant shape
+            g2d.setColor(new Color(180, 140, 140, (int) (255 * Math.min(1.0f, scale * 4))));
+            g2d.fill(new Rectangle2D.Float(-currentWidth / 2, -currentHeight / 2, currentWidth, currentHeight));
 
-                    // Selection buttons
-                    g2d.setColor(new Color(120, 120, 120));
-                    for (int i = 0; i < 2; i++) {
-                        for (int j = 0; j < 3; j++) {
-                            g2d.fill(new Ellipse2D.Float(-12 * scale + j * 8 * scale,
-                                    8 * scale + i * 8 * scale,
-                                    5 * scale, 5 * scale));
-                        }
-                    }
+            g2d.setTransform(oldTransform);
+        }
+
+        // Paints the detailed machine centered at the origin, used to build the mipmap levels
+        private void paintDetailedMachine(Graphics2D g2d, float scale) {
+            float currentWidth = BASE_WIDTH * scale;
+            float currentHeight = BASE_HEIGHT * scale;
 
-                    // Brand text
-                    g2d.setColor(new Color(255, 255, 255, 160));
-                    g2d.setFont(new Font("Arial", Font.BOLD, Math.max(8, (int) (6 * scale))));
-                    FontMetrics fm = g2d.getFontMetrics();
-                    String brand = "SIDE";
-                    int brandWidth = fm.stringWidth(brand);
-                    g2d.drawString(brand, -brandWidth / 2, -currentHeight / 2.5f);
+            // Main body
+            g2d.setColor(VENDING_BASE);
+            g2d.fill(new RoundRectangle2D.Float(-currentWidth / 2, -currentHeight / 2, currentWidth, currentHeight,
+                    8 * scale, 8 * scale));
+
+            // Front panel
+            g2d.setColor(VENDING_ACCENT);
+            g2d.fill(new RoundRectangle2D.Float(-currentWidth / 2 + 4 * scale, -currentHeight / 2 + 8 * scale,
+                    currentWidth - 8 * scale, currentHeight / 1.8f, 5 * scale, 5 * scale));
+
+            // Glass section
+            g2d.setColor(new Color(200, 240, 255, 120));
+            g2d.fill(new RoundRectangle2D.Float(-currentWidth / 2 + 7 * scale, -currentHeight / 2 + 12 * scale,
+                    currentWidth - 14 * scale, currentHeight / 2.2f, 3 * scale, 3 * scale));
+
+            // Product shelves
+            if (scale > 0.5f) {
+                g2d.setColor(new Color(255, 255, 255, 100));
+                for (int i = 0; i < 4; i++) {
+                    g2d.fill(new Rectangle2D.Float(-currentWidth / 2 + 9 * scale,
+                            -currentHeight / 3 + i * 7 * scale,
+                            currentWidth - 18 * scale, 1.5f * scale));
                 }
 
-                // Coin slot and dispenser
-                g2d.setColor(new Color(0, 0, 0, 120));
-                g2d.fill(new RoundRectangle2D.Float(-8 * scale, currentHeight / 2.5f - 4 * scale,
-                        16 * scale, 5 * scale, 2 * scale, 2 * scale));
+                // Selection buttons
+                g2d.setColor(new Color(120, 120, 120));
+                for (int i = 0; i < 2; i++) {
+                    for (int j = 0; j < 3; j++) {
+                        g2d.fill(new Ellipse2D.Float(-12 * scale + j * 8 * scale,
+                                8 * scale + i * 8 * scale,
+                                5 * scale, 5 * scale));
+                    }
+                }
+
+                // Brand text
+                g2d.setColor(new Color(255, 255, 255, 160));
+                g2d.setFont(new Font("Arial", Font.BOLD, Math.max(8, (int) (6 * scale))));
+                FontMetrics fm = g2d.getFontMetrics();
+                String brand = "SIDE";
+                int brandWidth = fm.stringWidth(brand);
+                g2d.drawString(brand, -brandWidth / 2, -currentHeight / 2.5f);
             }
 
-            g2d.setTransform(oldTransform);
+            // Coin slot and dispenser
+            g2d.setColor(new Color(0, 0, 0, 120));
+            g2d.fill(new RoundRectangle2D.Float(-8 * scale, currentHeight / 2.5f - 4 * scale,
+                    16 * scale, 5 * scale, 2 * scale, 2 * scale));
         }
 
         public void drawShadow(Graphics2D g2d) {
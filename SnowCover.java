@@ -0,0 +1,192 @@
+// SnowCover.java - Per-column snow heightmap on the glass floor, drawn from an incrementally updated strip
+package projectCG;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.Arrays;
+
+class SnowCover {
+    // Heights are kept in 1/16 px so single flakes still add up
+    private static final int SUBPIXELS = 16;
+    private static final int MAX_HEIGHT_PX = 48;
+    private static final int MAX_HEIGHT = MAX_HEIGHT_PX * SUBPIXELS;
+    // Each landed flake leaves a small mound rather than a one-pixel spike
+    private static final int MOUND_RADIUS = 6;
+    private static final int MOUND_PEAK = 32;
+    // Steepest allowed step between neighbouring columns before snow slides sideways
+    private static final int TALUS = 12;
+    private static final float MELT_PX_PER_STEP = 0.25f;
+
+    // Strip colours per row from the top of the strip down, premultiplied
+    private static final int[] ROW_COLORS = new int[MAX_HEIGHT_PX];
+    private static final int CREST_COLOR = premultiplied(250, 255, 255, 255);
+
+    static {
+        for (int row = 0; row < MAX_HEIGHT_PX; row++) {
+            // Slightly bluer towards the floor
+            int shade = 250 - row * 25 / MAX_HEIGHT_PX;
+            ROW_COLORS[row] = premultiplied(235, shade, shade + 3, 255);
+        }
+    }
+
+    private short[] heights = new short[0];
+    private int[] dirtyColumns = new int[0];
+    private boolean[] dirty = new boolean[0];
+    private int dirtyCount = 0;
+    private boolean fullRedraw = true;
+
+    // Melting lowers the whole cover at once by sliding the strip down, so it costs nothing per column
+    private boolean melting = false;
+    private float meltedPx = 0;
+    private boolean empty = true;
+
+    private BufferedImage strip;
+    private int[] pixels;
+
+    // Snow settles when the weather turns snowy and melts away when it turns to anything else
+    void setMelting(boolean melting) {
+        if (this.melting == melting)
+            return;
+        this.melting = melting;
+        if (!melting && meltedPx > 0) {
+            // Fresh snow lands on what's left, so fold the melt back into the heights once
+            int melted = (int) (meltedPx * SUBPIXELS);
+            for (int x = 0; x < heights.length; x++) {
+                heights[x] = (short) Math.max(0, heights[x] - melted);
+            }
+            meltedPx = 0;
+            fullRedraw = true;
+        }
+    }
+
+    // Surface height above the floor in whole pixels at column x
+    int heightAt(int x) {
+        if (empty || x < 0 || x >= heights.length)
+            return 0;
+        return Math.max(0, (int) (heights[x] / SUBPIXELS - meltedPx));
+    }
+
+    void update(int width) {
+        if (heights.length != width) {
+            heights = Arrays.copyOf(heights, width);
+            dirtyColumns = new int[width];
+            dirty = new boolean[width];
+            dirtyCount = 0;
+            fullRedraw = true;
+        }
+        if (melting && !empty) {
+            meltedPx += MELT_PX_PER_STEP;
+            if (meltedPx >= MAX_HEIGHT_PX) {
+                clear();
+            }
+        }
+    }
+
+    // A flake settled at column x; touches only the columns under its mound
+    void land(int x) {
+        if (melting || x < 0 || x >= heights.length)
+            return;
+        empty = false;
+
+        int from = Math.max(0, x - MOUND_RADIUS);
+        int to = Math.min(heights.length - 1, x + MOUND_RADIUS);
+        for (int column = from; column <= to; column++) {
+            int amount = MOUND_PEAK * (MOUND_RADIUS + 1 - Math.abs(column - x)) / (MOUND_RADIUS + 1);
+            heights[column] = (short) Math.min(MAX_HEIGHT, heights[column] + amount);
+            markDirty(column);
+        }
+        relax(Math.max(0, from - 1), Math.min(heights.length - 1, to + 1));
+    }
+
+    // Slide snow off any step steeper than the talus limit, only around the columns just changed
+    private void relax(int from, int to) {
+        for (int column = from; column < to; column++) {
+            int difference = heights[column] - heights[column + 1];
+            if (Math.abs(difference) <= TALUS)
+                continue;
+            int moved = (Math.abs(difference) - TALUS) / 2 * Integer.signum(difference);
+            heights[column] -= moved;
+            heights[column + 1] += moved;
+            markDirty(column);
+            markDirty(column + 1);
+        }
+    }
+
+    private void markDirty(int column) {
+        if (!dirty[column]) {
+            dirty[column] = true;
+            dirtyColumns[dirtyCount++] = column;
+        }
+    }
+
+    void clear() {
+        Arrays.fill(heights, (short) 0);
+        meltedPx = 0;
+        empty = true;
+        fullRedraw = true;
+    }
+
+    // Draws the cover resting on floorY; only columns that changed since the last frame are repainted
+    void render(Graphics2D g2d, int floorY) {
+        if (empty || heights.length == 0)
+            return;
+
+        if (strip == null || strip.getWidth() != heights.length) {
+            ImagePool.shared().release(strip);
+            strip = ImagePool.shared().acquire(heights.length, MAX_HEIGHT_PX, BufferedImage.TYPE_INT_ARGB_PRE);
+            pixels = ((DataBufferInt) strip.getRaster().getDataBuffer()).getData();
+            fullRedraw = true;
+        }
+
+        if (fullRedraw) {
+            for (int x = 0; x < heights.length; x++) {
+                drawColumn(x);
+            }
+            fullRedraw = false;
+        } else {
+            for (int i = 0; i < dirtyCount; i++) {
+                drawColumn(dirtyColumns[i]);
+            }
+        }
+        for (int i = 0; i < dirtyCount; i++) {
+            dirty[dirtyColumns[i]] = false;
+        }
+        dirtyCount = 0;
+
+        // Melting just shows less of the strip, cut off at the floor
+        int visible = MAX_HEIGHT_PX - (int) meltedPx;
+        if (visible > 0) {
+            g2d.drawImage(strip, 0, floorY - visible, heights.length, floorY,
+                    0, 0, heights.length, visible, null);
+        }
+    }
+
+    private void drawColumn(int x) {
+        int width = heights.length;
+        int columnHeight = Math.min(MAX_HEIGHT_PX, (heights[x] + SUBPIXELS - 1) / SUBPIXELS);
+        int top = MAX_HEIGHT_PX - columnHeight;
+        for (int row = 0; row < MAX_HEIGHT_PX; row++) {
+            int color;
+            if (row < top) {
+                color = 0;
+            } else if (row == top) {
+                color = CREST_COLOR;
+            } else {
+                color = ROW_COLORS[row - top];
+            }
+            pixels[row * width + x] = color;
+        }
+    }
+
+    void dispose() {
+        clear();
+        ImagePool.shared().release(strip);
+        strip = null;
+        pixels = null;
+    }
+
+    private static int premultiplied(int alpha, int red, int green, int blue) {
+        return alpha << 24 | (red * alpha / 255) << 16 | (green * alpha / 255) << 8 | (blue * alpha / 255);
+    }
+}
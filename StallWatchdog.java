@@ -0,0 +1,264 @@
+// StallWatchdog.java - Catches frames that overrun a budget and aggregates where the frame thread was stuck
+package projectCG;
+
+import java.awt.EventQueue;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+class StallWatchdog {
+    // Off unless -Dtaobin.stallBudgetMs is set; a frame running longer than that is a stall
+    private static final StallWatchdog shared = new StallWatchdog(readBudgetMillis());
+
+    private static final int STACK_DEPTH = 48;
+    // Our own frames that identify a stall site, below whatever library method was running
+    private static final int SITE_OWN_FRAMES = 3;
+    private static final String OWN_PACKAGE = "projectCG.";
+
+    // One per thread that runs frames (the simulation and render threads when pipelined),
+    // plus the EDT's, which the watcher beats itself with probes
+    final class Heartbeat {
+        private final String label;
+        private volatile long threadId;
+        private volatile long busySince;
+        private volatile long frame;
+        private volatile String scene = "";
+        private volatile StallSite captured;
+
+        private Heartbeat(String label) {
+            this.label = label;
+        }
+
+        void begin(String scene, long frame) {
+            if (budgetNanos == 0)
+                return;
+            this.threadId = Thread.currentThread().getId();
+            this.scene = scene;
+            this.frame = frame;
+            this.captured = null;
+            this.busySince = System.nanoTime();
+        }
+
+        void end() {
+            if (budgetNanos == 0)
+                return;
+            long started = busySince;
+            busySince = 0;
+            StallSite site = captured;
+            if (site != null && started != 0) {
+                site.finished(System.nanoTime() - started);
+            }
+        }
+    }
+
+    // Every stall whose stack matched the same key
+    private static final class StallSite {
+        final String key;
+        final String firstScene;
+        final long firstFrame;
+        final AtomicLong count = new AtomicLong();
+        final AtomicLong totalNanos = new AtomicLong();
+        final AtomicLong maxNanos = new AtomicLong();
+        volatile String lastScene;
+        volatile long lastFrame;
+
+        StallSite(String key, String scene, long frame) {
+            this.key = key;
+            this.firstScene = scene;
+            this.firstFrame = frame;
+        }
+
+        void finished(long nanos) {
+            totalNanos.addAndGet(nanos);
+            long seen = maxNanos.get();
+            while (nanos > seen && !maxNanos.compareAndSet(seen, nanos)) {
+                seen = maxNanos.get();
+            }
+        }
+    }
+
+    private final long budgetNanos;
+    private final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+    private final List<Heartbeat> heartbeats = new CopyOnWriteArrayList<>();
+    private final Map<String, StallSite> sites = new ConcurrentHashMap<>();
+    private Thread watcher;
+
+    // The EDT is watched from outside: each poll posts a probe to its queue, and a probe still waiting
+    // past the budget means the EDT was held up by whatever it was running, frame or not
+    private volatile Heartbeat edt;
+    private volatile Supplier<String> edtScene;
+    private volatile LongSupplier edtFrame;
+
+    StallWatchdog(long budgetMillis) {
+        this.budgetNanos = Math.max(0, budgetMillis) * 1_000_000L;
+        if (budgetNanos > 0) {
+            Runtime.getRuntime().addShutdownHook(new Thread(this::printReport, "stall-report"));
+        }
+    }
+
+    static StallWatchdog shared() {
+        return shared;
+    }
+
+    private static long readBudgetMillis() {
+        try {
+            return Long.parseLong(System.getProperty("taobin.stallBudgetMs", "0"));
+        } catch (NumberFormatException e) {
+            System.err.println("Invalid taobin.stallBudgetMs, using 0: " + e.getMessage());
+            return 0;
+        }
+    }
+
+    boolean isEnabled() {
+        return budgetNanos > 0;
+    }
+
+    Heartbeat heartbeat(String label) {
+        Heartbeat heartbeat = new Heartbeat(label);
+        if (budgetNanos > 0) {
+            heartbeats.add(heartbeat);
+            startWatcher();
+        }
+        return heartbeat;
+    }
+
+    // Scene and frame only label the report; they're read when each probe is posted
+    void watchEventDispatchThread(Supplier<String> scene, LongSupplier frame) {
+        if (budgetNanos == 0)
+            return;
+        Heartbeat probe;
+        synchronized (this) {
+            if (edt != null)
+                return;
+            edtScene = scene;
+            edtFrame = frame;
+            probe = new Heartbeat("EDT");
+            edt = probe;
+        }
+        EventQueue.invokeLater(() -> probe.threadId = Thread.currentThread().getId());
+        heartbeats.add(probe);
+        startWatcher();
+    }
+
+    private synchronized void startWatcher() {
+        if (watcher != null)
+            return;
+        watcher = new Thread(this::watch, "stall-watchdog");
+        watcher.setDaemon(true);
+        watcher.start();
+    }
+
+    // Polls a few times per budget; each overrunning frame gets its stack taken once
+    private void watch() {
+        long pollMillis = Math.max(5, budgetNanos / 4_000_000L);
+        while (true) {
+            try {
+                Thread.sleep(pollMillis);
+            } catch (InterruptedException e) {
+                return;
+            }
+            postProbe();
+            long now = System.nanoTime();
+            for (Heartbeat heartbeat : heartbeats) {
+                long started = heartbeat.busySince;
+                if (started != 0 && heartbeat.captured == null && heartbeat.threadId != 0
+                        && now - started > budgetNanos) {
+                    capture(heartbeat, now - started);
+                }
+            }
+        }
+    }
+
+    // Only one probe is in flight; while it waits, the EDT counts as busy since it was posted
+    private void postProbe() {
+        Heartbeat probe = edt;
+        if (probe == null || probe.busySince != 0)
+            return;
+        probe.scene = edtScene.get();
+        probe.frame = edtFrame.getAsLong();
+        probe.captured = null;
+        probe.busySince = System.nanoTime();
+        EventQueue.invokeLater(() -> {
+            // The EDT is replaced after an uncaught exception, so its id is refreshed every time
+            probe.threadId = Thread.currentThread().getId();
+            probe.end();
+        });
+    }
+
+    private void capture(Heartbeat heartbeat, long stalledNanos) {
+        ThreadInfo info;
+        try {
+            info = threads.getThreadInfo(heartbeat.threadId, STACK_DEPTH);
+        } catch (Exception e) {
+            System.err.println("Error capturing stalled thread: " + e.getMessage());
+            return;
+        }
+        if (info == null)
+            return;
+
+        StackTraceElement[] stack = info.getStackTrace();
+        String scene = heartbeat.scene;
+        long frame = heartbeat.frame;
+        StallSite site = sites.computeIfAbsent(siteKey(stack), key -> new StallSite(key, scene, frame));
+        site.count.incrementAndGet();
+        site.lastScene = scene;
+        site.lastFrame = frame;
+        heartbeat.captured = site;
+
+        // The first time a site shows up the whole stack is printed; after that it's only counted
+        if (site.count.get() == 1) {
+            StringBuilder message = new StringBuilder(String.format(
+                    "Stall on %s: frame %d of %s over %d ms budget (%d ms so far, %s)%n", heartbeat.label, frame,
+                    scene, budgetNanos / 1_000_000, stalledNanos / 1_000_000, info.getThreadState()));
+            for (StackTraceElement element : stack) {
+                message.append("    at ").append(element).append('\n');
+            }
+            System.err.print(message);
+        }
+    }
+
+    // The innermost method says what was slow; our own frames say which draw or update call asked for it.
+    // Library line numbers are left out so the same call stalling at different points counts as one site
+    private static String siteKey(StackTraceElement[] stack) {
+        StringBuilder key = new StringBuilder();
+        if (stack.length > 0 && !stack[0].getClassName().startsWith(OWN_PACKAGE)) {
+            key.append(stack[0].getClassName()).append('.').append(stack[0].getMethodName()).append(" <- ");
+        }
+        int own = 0;
+        for (StackTraceElement element : stack) {
+            if (own == SITE_OWN_FRAMES)
+                break;
+            if (element.getClassName().startsWith(OWN_PACKAGE)) {
+                key.append(element.getClassName().substring(OWN_PACKAGE.length())).append('.')
+                        .append(element.getMethodName()).append(':').append(element.getLineNumber()).append(" <- ");
+                own++;
+            }
+        }
+        return key.length() > 4 ? key.substring(0, key.length() - 4) : "(no stack)";
+    }
+
+    void printReport() {
+        if (sites.isEmpty())
+            return;
+        List<StallSite> sorted = new ArrayList<>(sites.values());
+        sorted.sort((a, b) -> Long.compare(b.count.get(), a.count.get()));
+        StringBuilder report = new StringBuilder(String.format("Stall sites over %d ms, most frequent first:%n",
+                budgetNanos / 1_000_000));
+        for (StallSite site : sorted) {
+            long count = site.count.get();
+            report.append(String.format("  %d stalls, max %d ms, mean %d ms, first %s frame %d, last %s frame %d%n",
+                    count, site.maxNanos.get() / 1_000_000, site.totalNanos.get() / 1_000_000 / Math.max(1, count),
+                    site.firstScene, site.firstFrame, site.lastScene, site.lastFrame));
+            report.append("    ").append(site.key).append('\n');
+        }
+        System.err.print(report);
+    }
+}
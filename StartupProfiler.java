@@ -0,0 +1,82 @@
+// StartupProfiler.java - Timestamps the way from JVM start to the first painted frame
+package projectCG;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.RuntimeMXBean;
+
+final class StartupProfiler {
+    private static long mainMillis = -1;
+    private static long frameVisibleMillis = -1;
+    private static boolean firstFrameReported = false;
+
+    private StartupProfiler() {
+    }
+
+    // Called first thing in main, before any AWT class is touched
+    static synchronized void mainStarted() {
+        mainMillis = sinceJvmStart();
+        scheduleTrainingExit();
+    }
+
+    static synchronized void frameVisible() {
+        frameVisibleMillis = sinceJvmStart();
+    }
+
+    // Called by the host after every paint; only the first one counts
+    static void firstFramePainted() {
+        synchronized (StartupProfiler.class) {
+            if (firstFrameReported)
+                return;
+            firstFrameReported = true;
+        }
+
+        try {
+            long firstFrame = sinceJvmStart();
+            System.out.println("Startup: main +" + mainMillis + " ms, frame visible +" + frameVisibleMillis
+                    + " ms, first frame +" + firstFrame + " ms, "
+                    + ManagementFactory.getClassLoadingMXBean().getLoadedClassCount() + " classes loaded, "
+                    + describeSharedArchive());
+        } catch (Exception e) {
+            System.err.println("Error reporting startup: " + e.getMessage());
+        }
+    }
+
+    private static long sinceJvmStart() {
+        RuntimeMXBean runtime = ManagementFactory.getRuntimeMXBean();
+        return System.currentTimeMillis() - runtime.getStartTime();
+    }
+
+    private static String describeSharedArchive() {
+        for (String argument : ManagementFactory.getRuntimeMXBean().getInputArguments()) {
+            if (argument.startsWith("-XX:SharedArchiveFile="))
+                return "CDS archive " + argument.substring("-XX:SharedArchiveFile=".length());
+            if (argument.startsWith("-XX:ArchiveClassesAtExit="))
+                return "CDS training run";
+        }
+        return "no app CDS archive";
+    }
+
+    // CDS training runs (see taobin.sh) play the whole show once so every scene's classes get archived,
+    // then exit so the JVM can dump the archive
+    private static void scheduleTrainingExit() {
+        String seconds = System.getProperty("taobin.trainingSeconds");
+        if (seconds == null)
+            return;
+        try {
+            long millis = Long.parseLong(seconds) * 1000;
+            Thread exit = new Thread(() -> {
+                try {
+                    Thread.sleep(millis);
+                } catch (InterruptedException e) {
+                    return;
+                }
+                System.out.println("Training run finished after " + seconds + " s");
+                System.exit(0);
+            }, "cds-training-exit");
+            exit.setDaemon(true);
+            exit.start();
+        } catch (NumberFormatException e) {
+            System.err.println("Invalid taobin.trainingSeconds: " + e.getMessage());
+        }
+    }
+}
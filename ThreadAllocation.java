@@ -0,0 +1,32 @@
+// ThreadAllocation.java - The JVM's per-thread allocation counters, enabled once for every reader
+package projectCG;
+
+import java.lang.management.ManagementFactory;
+
+final class ThreadAllocation {
+    private static final com.sun.management.ThreadMXBean THREADS = threadBean();
+
+    private ThreadAllocation() {
+    }
+
+    // Null when this JVM can't count allocated bytes per thread
+    static com.sun.management.ThreadMXBean threads() {
+        return THREADS;
+    }
+
+    private static com.sun.management.ThreadMXBean threadBean() {
+        try {
+            java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+            if (bean instanceof com.sun.management.ThreadMXBean) {
+                com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+                if (threads.isThreadAllocatedMemorySupported()) {
+                    threads.setThreadAllocatedMemoryEnabled(true);
+                    return threads;
+                }
+            }
+        } catch (Exception e) {
+            System.err.println("Error enabling allocation counters: " + e.getMessage());
+        }
+        return null;
+    }
+}
@@ -0,0 +1,220 @@
+// TimerWheel.java - Hierarchical timing wheel ticked by the fixed simulation step
+package projectCG;
+
+import java.util.ArrayList;
+import java.util.List;
+
+class TimerWheel {
+    private static final int WHEEL_BITS = 6;
+    private static final int WHEEL_SIZE = 1 << WHEEL_BITS; // 64 slots per level
+    private static final int WHEEL_MASK = WHEEL_SIZE - 1;
+    private static final int LEVELS = 4; // 64^4 steps, about 77 hours at 60 steps per second
+    private static final long MAX_DELAY = (1L << (WHEEL_BITS * LEVELS)) - 1;
+
+    private static final TimerWheel shared = new TimerWheel();
+
+    final class Timeout {
+        private final Runnable task;
+        private final long period;
+        private long deadline;
+        private boolean cancelled = false;
+        private boolean scheduled = false;
+
+        // Intrusive slot list so insert and cancel are O(1)
+        private Timeout prev;
+        private Timeout next;
+        private int level;
+        private int slot;
+
+        private Timeout(Runnable task, long period) {
+            this.task = task;
+            this.period = period;
+        }
+
+        void cancel() {
+            synchronized (TimerWheel.this) {
+                cancelled = true;
+                if (scheduled) {
+                    unlink(this);
+                }
+            }
+        }
+
+        boolean isCancelled() {
+            synchronized (TimerWheel.this) {
+                return cancelled;
+            }
+        }
+
+        long getRemainingSteps() {
+            synchronized (TimerWheel.this) {
+                return Math.max(0, deadline - currentTick);
+            }
+        }
+    }
+
+    private final Timeout[][] heads = new Timeout[LEVELS][WHEEL_SIZE];
+    private final Timeout[][] tails = new Timeout[LEVELS][WHEEL_SIZE];
+    private final List<Timeout> expired = new ArrayList<>();
+    private final TraceRecorder tracer = TraceRecorder.shared();
+    private long currentTick = 0;
+    private int pending = 0;
+
+    static TimerWheel shared() {
+        return shared;
+    }
+
+    static long secondsToSteps(double seconds) {
+        return Math.max(1, Math.round(seconds / FrameClock.STEP_SECONDS));
+    }
+
+    static long millisToSteps(long millis) {
+        return secondsToSteps(millis / 1000.0);
+    }
+
+    // Runs the task once after the given number of simulation steps (at least one)
+    synchronized Timeout schedule(long delaySteps, Runnable task) {
+        Timeout timeout = new Timeout(task, 0);
+        insert(timeout, currentTick + clampDelay(delaySteps));
+        return timeout;
+    }
+
+    // Runs the task every periodSteps until cancelled
+    synchronized Timeout scheduleRepeating(long periodSteps, Runnable task) {
+        long period = clampDelay(periodSteps);
+        Timeout timeout = new Timeout(task, period);
+        insert(timeout, currentTick + period);
+        return timeout;
+    }
+
+    synchronized long now() {
+        return currentTick;
+    }
+
+    synchronized int getPendingCount() {
+        return pending;
+    }
+
+    // Advance one simulation step and run everything that expires on it, in scheduling order
+    void tick() {
+        synchronized (this) {
+            currentTick++;
+            cascade();
+
+            int slot = (int) (currentTick & WHEEL_MASK);
+            Timeout timeout = heads[0][slot];
+            while (timeout != null) {
+                Timeout next = timeout.next;
+                unlink(timeout);
+                expired.add(timeout);
+                timeout = next;
+            }
+        }
+
+        // Tasks run outside the lock so they can schedule or cancel freely
+        for (int i = 0; i < expired.size(); i++) {
+            Timeout timeout = expired.get(i);
+            long span = tracer.begin();
+            try {
+                timeout.task.run();
+            } catch (Exception e) {
+                System.err.println("Error in scheduled task: " + e.getMessage());
+            }
+            tracer.end("timer", span);
+            if (timeout.period > 0) {
+                synchronized (this) {
+                    if (!timeout.cancelled && !timeout.scheduled) {
+                        insert(timeout, currentTick + timeout.period);
+                    }
+                }
+            }
+        }
+        expired.clear();
+    }
+
+    // Cancels everything, e.g. when the whole show is reset
+    synchronized void clear() {
+        for (int level = 0; level < LEVELS; level++) {
+            for (int slot = 0; slot < WHEEL_SIZE; slot++) {
+                Timeout timeout = heads[level][slot];
+                while (timeout != null) {
+                    Timeout next = timeout.next;
+                    timeout.cancelled = true;
+                    unlink(timeout);
+                    timeout = next;
+                }
+            }
+        }
+    }
+
+    private long clampDelay(long delaySteps) {
+        return Math.max(1, Math.min(MAX_DELAY, delaySteps));
+    }
+
+    // When a lower level wraps, redistribute the next higher slot into finer slots
+    private void cascade() {
+        for (int level = 1; level < LEVELS; level++) {
+            long lowerBits = currentTick & ((1L << (WHEEL_BITS * level)) - 1);
+            if (lowerBits != 0)
+                break;
+
+            int slot = (int) ((currentTick >>> (WHEEL_BITS * level)) & WHEEL_MASK);
+            Timeout timeout = heads[level][slot];
+            heads[level][slot] = null;
+            tails[level][slot] = null;
+            while (timeout != null) {
+                Timeout next = timeout.next;
+                timeout.prev = null;
+                timeout.next = null;
+                timeout.scheduled = false;
+                pending--;
+                insert(timeout, timeout.deadline);
+                timeout = next;
+            }
+        }
+    }
+
+    private void insert(Timeout timeout, long deadline) {
+        timeout.deadline = deadline;
+        long delay = Math.max(0, deadline - currentTick);
+
+        int level = 0;
+        while (level < LEVELS - 1 && delay >= (1L << (WHEEL_BITS * (level + 1)))) {
+            level++;
+        }
+        int slot = (int) ((deadline >>> (WHEEL_BITS * level)) & WHEEL_MASK);
+
+        // Append to the tail so timeouts on the same step fire in scheduling order
+        timeout.level = level;
+        timeout.slot = slot;
+        timeout.prev = tails[level][slot];
+        timeout.next = null;
+        if (tails[level][slot] != null) {
+            tails[level][slot].next = timeout;
+        } else {
+            heads[level][slot] = timeout;
+        }
+        tails[level][slot] = timeout;
+        timeout.scheduled = true;
+        pending++;
+    }
+
+    private void unlink(Timeout timeout) {
+        if (!timeout.scheduled)
+            return;
+        if (timeout.prev != null) {
+            timeout.prev.next = timeout.next;
+        } else {
+            heads[timeout.level][timeout.slot] = timeout.next;
+        }
+        if (timeout.next != null) {
+            timeout.next.prev = timeout.prev;
+        } else {
+            tails[timeout.level][timeout.slot] = timeout.prev;
+        }
+        timeout.prev = null;
+        timeout.next = null;
+        timeout.scheduled = false;
+        pending--;
+    }
+}
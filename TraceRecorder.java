@@ -0,0 +1,140 @@
+// TraceRecorder.java - Nested update/render spans in a preallocated ring, exported as Chrome trace-event JSON
+package projectCG;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+class TraceRecorder {
+    // Off unless -Dtaobin.trace=<file>; F5 (and exit) writes the last few seconds there,
+    // ready for chrome://tracing or ui.perfetto.dev
+    private static final TraceRecorder shared = new TraceRecorder(System.getProperty("taobin.trace"),
+            readInt("taobin.traceEvents", 1 << 16), readInt("taobin.traceSeconds", 10));
+
+    private final Path tracePath;
+    private final int capacity;
+    private final long windowNanos;
+
+    // One slot per finished span; names are string constants, so recording never allocates
+    private final String[] names;
+    private final long[] starts;
+    private final long[] durations;
+    private final long[] threads;
+    private final AtomicLong written = new AtomicLong();
+
+    TraceRecorder(String tracePath, int capacity, int windowSeconds) {
+        this.tracePath = tracePath == null || tracePath.isEmpty() ? null : Paths.get(tracePath);
+        this.capacity = this.tracePath != null ? Math.max(1024, capacity) : 0;
+        this.windowNanos = Math.max(1, windowSeconds) * 1_000_000_000L;
+        names = new String[this.capacity];
+        starts = new long[this.capacity];
+        durations = new long[this.capacity];
+        threads = new long[this.capacity];
+        if (this.tracePath != null) {
+            Runtime.getRuntime().addShutdownHook(new Thread(this::writeTrace, "trace-export"));
+        }
+    }
+
+    static TraceRecorder shared() {
+        return shared;
+    }
+
+    private static int readInt(String property, int fallback) {
+        try {
+            return Integer.parseInt(System.getProperty(property, Integer.toString(fallback)));
+        } catch (NumberFormatException e) {
+            System.err.println("Invalid " + property + ", using " + fallback + ": " + e.getMessage());
+            return fallback;
+        }
+    }
+
+    boolean isEnabled() {
+        return tracePath != null;
+    }
+
+    long begin() {
+        return tracePath != null ? System.nanoTime() : 0;
+    }
+
+    // Records a span from start until now and returns now, so back-to-back spans chain:
+    //   long span = tracer.begin(); drawSky(); span = tracer.end("render.sky", span); ...
+    long end(String name, long start) {
+        if (tracePath == null)
+            return 0;
+        long now = System.nanoTime();
+        int slot = (int) (written.getAndIncrement() % capacity);
+        names[slot] = name;
+        starts[slot] = start;
+        durations[slot] = now - start;
+        threads[slot] = Thread.currentThread().getId();
+        return now;
+    }
+
+    // Written off the calling thread; spans still being recorded meanwhile are left out
+    void writeTraceInBackground() {
+        if (tracePath == null)
+            return;
+        Thread writer = new Thread(this::writeTrace, "trace-export");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    synchronized void writeTrace() {
+        if (tracePath == null)
+            return;
+        long end = written.get();
+        long first = Math.max(0, end - capacity);
+        long cutoff = System.nanoTime() - windowNanos;
+        int count = 0;
+        try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(tracePath, StandardCharsets.UTF_8))) {
+            out.println("{\"displayTimeUnit\":\"ms\",\"traceEvents\":[");
+            Set<Long> threadIds = new HashSet<>();
+            for (long i = first; i < end; i++) {
+                int slot = (int) (i % capacity);
+                if (starts[slot] < cutoff || names[slot] == null)
+                    continue;
+                threadIds.add(threads[slot]);
+                // Locale.ROOT keeps the decimal point a point on kiosks set to e.g. de_DE
+                out.printf(Locale.ROOT,
+                        "{\"name\":\"%s\",\"ph\":\"X\",\"ts\":%.3f,\"dur\":%.3f,\"pid\":1,\"tid\":%d},%n",
+                        names[slot], starts[slot] / 1000.0, durations[slot] / 1000.0, threads[slot]);
+                count++;
+            }
+            writeThreadNames(out, threadIds);
+            out.println("]}");
+            System.out.println("Trace of " + count + " spans written to " + tracePath);
+        } catch (IOException e) {
+            System.err.println("Error writing trace: " + e.getMessage());
+        }
+    }
+
+    private static void writeThreadNames(PrintWriter out, Set<Long> threadIds) {
+        ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+        boolean firstName = true;
+        for (long id : threadIds) {
+            ThreadInfo info = threadBean.getThreadInfo(id);
+            String name = info != null ? info.getThreadName() : "thread-" + id;
+            if (!firstName) {
+                out.println(",");
+            }
+            firstName = false;
+            out.printf("{\"name\":\"thread_name\",\"ph\":\"M\",\"pid\":1,\"tid\":%d,\"args\":{\"name\":\"%s\"}}",
+                    id, name.replace("\\", "\\\\").replace("\"", "\\\""));
+        }
+        if (firstName) {
+            // Keeps the array valid when there is nothing to name
+            out.print("{\"name\":\"process_name\",\"ph\":\"M\",\"pid\":1,\"args\":{\"name\":\"taobin\"}}");
+        }
+        out.println();
+    }
+}
@@ -0,0 +1,128 @@
+// TransitionCompositor.java - Blends the outgoing and incoming scenes' cached frames during a cut
+package projectCG;
+
+import java.awt.AlphaComposite;
+import java.awt.Color;
+import java.awt.Composite;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+
+class TransitionCompositor implements Scene {
+    enum Style {
+        CROSS_FADE,
+        FLASH,
+        WIPE
+    }
+
+    private static final int ALPHA_STEPS = 32;
+    private static final AlphaComposite[] ALPHA_COMPOSITES = new AlphaComposite[ALPHA_STEPS + 1];
+
+    static {
+        for (int i = 0; i <= ALPHA_STEPS; i++) {
+            ALPHA_COMPOSITES[i] = AlphaComposite.getInstance(AlphaComposite.SRC_OVER, i / (float) ALPHA_STEPS);
+        }
+    }
+
+    private final Style style;
+    private final int durationSteps;
+    private final Scene incoming;
+    private BufferedImage outgoingFrame;
+    private BufferedImage incomingFrame;
+    private SceneHost host;
+    private int step = 0;
+    private boolean handedOver = false;
+
+    // Both frames are pooled images owned by the compositor until it is disposed
+    TransitionCompositor(Style style, int durationSteps, BufferedImage outgoingFrame, BufferedImage incomingFrame,
+            Scene incoming) {
+        this.style = style;
+        this.durationSteps = Math.max(1, durationSteps);
+        this.outgoingFrame = outgoingFrame;
+        this.incomingFrame = incomingFrame;
+        this.incoming = incoming;
+    }
+
+    @Override
+    public void init(SceneHost host) {
+        this.host = host;
+    }
+
+    // Neither scene simulates while the frames blend; the incoming scene resumes from its first frame
+    @Override
+    public void update() {
+        step++;
+        if (step == durationSteps && host != null) {
+            host.resume(incoming);
+            handedOver = true;
+        }
+    }
+
+    @Override
+    public void render(Graphics2D g2d, int width, int height) {
+        if (outgoingFrame == null || incomingFrame == null)
+            return;
+
+        float progress = Math.min(1.0f, (step + (float) FrameClock.shared().getAlpha()) / durationSteps);
+        Composite originalComposite = g2d.getComposite();
+        try {
+            switch (style) {
+                case CROSS_FADE:
+                    g2d.drawImage(outgoingFrame, 0, 0, null);
+                    g2d.setComposite(composite(progress));
+                    g2d.drawImage(incomingFrame, 0, 0, null);
+                    break;
+                case FLASH:
+                    // Ramp up to white over the outgoing frame, hold, then fade out over the incoming one
+                    float whiteness;
+                    if (progress < 0.4f) {
+                        g2d.drawImage(outgoingFrame, 0, 0, null);
+                        whiteness = easeInOutQuad(progress / 0.4f);
+                    } else if (progress < 0.6f) {
+                        whiteness = 1.0f;
+                    } else {
+                        g2d.drawImage(incomingFrame, 0, 0, null);
+                        whiteness = easeInOutQuad((1.0f - progress) / 0.4f);
+                    }
+                    g2d.setComposite(composite(whiteness));
+                    g2d.setColor(Color.WHITE);
+                    g2d.fillRect(0, 0, width, height);
+                    break;
+                case WIPE:
+                    int edge = Math.round(progress * width);
+                    g2d.drawImage(outgoingFrame, 0, 0, null);
+                    g2d.drawImage(incomingFrame, 0, 0, edge, height, 0, 0, edge, height, null);
+                    break;
+            }
+        } finally {
+            g2d.setComposite(originalComposite);
+        }
+    }
+
+    @Override
+    public void dispose() {
+        ImagePool.shared().release(outgoingFrame);
+        ImagePool.shared().release(incomingFrame);
+        outgoingFrame = null;
+        incomingFrame = null;
+
+        // Torn down mid-blend: the incoming scene was already initialised and never reached the host
+        if (!handedOver) {
+            handedOver = true;
+            try {
+                incoming.dispose();
+            } catch (Exception e) {
+                System.err.println("Error during cleanup: " + e.getMessage());
+            }
+            SceneLifecycleTracker.shared().disposed(incoming);
+        }
+    }
+
+    private static AlphaComposite composite(float alpha) {
+        return ALPHA_COMPOSITES[Math.round(Math.max(0, Math.min(1, alpha)) * ALPHA_STEPS)];
+    }
+
+    private static float easeInOutQuad(float t) {
+        t = Math.max(0, Math.min(1, t));
+        return t < 0.5f ? 2 * t * t : 1 - (float) Math.pow(-2 * t + 2, 2) / 2;
+    }
+}
@@ -5,36 +5,32 @@ import java.awt.AlphaComposite;
 import java.awt.BasicStroke;
 import java.awt.Color;
 import java.awt.Composite;
-import java.awt.Dimension;
 import java.awt.GradientPaint;
-import java.awt.Graphics;
 import java.awt.Graphics2D;
 import java.awt.Polygon;
 import java.awt.RadialGradientPaint;
 import java.awt.RenderingHints;
-import java.awt.event.ActionEvent;
-import java.awt.event.ActionListener;
 import java.awt.geom.AffineTransform;
 import java.awt.geom.Ellipse2D;
 import java.awt.geom.Rectangle2D;
 import java.awt.geom.RoundRectangle2D;
-import java.awt.image.BufferedImage;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Random;
 
-import javax.swing.JFrame;
-import javax.swing.JPanel;
-import javax.swing.Timer;
-
-public class VendingFallFromSky extends JPanel implements ActionListener {
+public class VendingFallFromSky implements Scene {
     private static final int WINDOW_WIDTH = 600;
     private static final int WINDOW_HEIGHT = 600;
 
-    // Static frame reference for transitions
-    private static JFrame frame;
-
-    private Timer gameTimer;
+    private SceneHost host;
+    private final FrameClock clock = FrameClock.shared();
+    private final AllocationLedger.SceneAllocations allocations =
+            AllocationLedger.shared().forScene(getClass().getSimpleName());
+    private final TraceRecorder tracer = TraceRecorder.shared();
+    private SceneDirector<SideView> nextScenePreload;
+    private boolean sceneFinished = false;
+    private final Color background;
     private VendingMachine vendingMachine;
     private List<Cloud> clouds;
     private List<Particle> particles;
@@ -45,9 +41,8 @@ public class VendingFallFromSky extends JPanel implements ActionListener {
     private int completionTimer = 0;
     private float cameraShake = 0;
 
-    // Double buffering for smoother rendering
-    private BufferedImage backBuffer;
-    private Graphics2D backBufferGraphics;
+    // Detailed body is only drawn above scale 0.4, so two levels (1.2 and 0.6) cover it
+    private final MipmapSprite machineSprite = new MipmapSprite(1.2f, 2, 90, 140, 8, this::paintDetailedMachineBody);
 
     // Enhanced lofi color palette
     private final Color[] SKY_GRADIENT = {
@@ -58,13 +53,11 @@ public class VendingFallFromSky extends JPanel implements ActionListener {
     };
 
     public VendingFallFromSky() {
-        this.setPreferredSize(new Dimension(WINDOW_WIDTH, WINDOW_HEIGHT));
-        this.setBackground(SKY_GRADIENT[0]);
-        this.setFocusable(true);
-        this.setDoubleBuffered(true);
+        this.background = SKY_GRADIENT[0];
 
         // Initialize objects
         random = new Random();
+        machineSprite.prepareAll();
 
         // Create vending machine
         vendingMachine = new VendingMachine(WINDOW_WIDTH / 2, WINDOW_HEIGHT / 2);
@@ -75,39 +68,17 @@ public class VendingFallFromSky extends JPanel implements ActionListener {
         rainDrops = new ArrayList<>();
 
         createAtmosphere();
-
-        // Start animation
-        gameTimer = new Timer(16, this); // ~60 FPS
-    }
-
-    // Static method to set frame reference
-    public static void setFrame(JFrame f) {
-        frame = f;
     }
 
-    public void startAnimation() {
-        if (gameTimer != null && !gameTimer.isRunning()) {
-            gameTimer.start();
-        }
-    }
-
-    public void stopAnimation() {
-        if (gameTimer != null) {
-            gameTimer.stop();
-        }
-        cleanupResources();
+    @Override
+    public void init(SceneHost host) {
+        this.host = host;
+        nextScenePreload = SceneDirector.preload("SideView", host, SideView::new);
     }
 
-    private void cleanupResources() {
+    @Override
+    public void dispose() {
         try {
-            if (backBufferGraphics != null) {
-                backBufferGraphics.dispose();
-                backBufferGraphics = null;
-            }
-            if (backBuffer != null) {
-                backBuffer.flush();
-                backBuffer = null;
-            }
             // Clear collections
             if (particles != null)
                 particles.clear();
@@ -121,36 +92,10 @@ public class VendingFallFromSky extends JPanel implements ActionListener {
     }
 
     @Override
-    public void addNotify() {
-        super.addNotify();
-        createBackBuffer();
-        startAnimation();
-    }
-
-    @Override
-    public void removeNotify() {
-        stopAnimation();
-        super.removeNotify();
-    }
-
-    private void createBackBuffer() {
-        try {
-            if (getWidth() > 0 && getHeight() > 0) {
-                // Clean up old buffer
-                if (backBufferGraphics != null) {
-                    backBufferGraphics.dispose();
-                }
-
-                backBuffer = new BufferedImage(getWidth(), getHeight(), BufferedImage.TYPE_INT_ARGB);
-                backBufferGraphics = backBuffer.createGraphics();
-                backBufferGraphics.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
-                backBufferGraphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
-                backBufferGraphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION,
-                        RenderingHints.VALUE_INTERPOLATION_BILINEAR);
-            }
-        } catch (Exception e) {
-            System.err.println("Error creating back buffer: " + e.getMessage());
-        }
+    public void countEntities(Map<String, Integer> counts) {
+        counts.put("clouds", clouds.size());
+        counts.put("particles", particles.size());
+        counts.put("raindrops", rainDrops.size());
     }
 
     private void createAtmosphere() {
@@ -188,67 +133,123 @@ public class VendingFallFromSky extends JPanel implements ActionListener {
     }
 
     @Override
-    protected void paintComponent(Graphics g) {
-        if (g == null)
-            return;
-
+    public void render(Graphics2D g2d, int width, int height) {
         try {
-            super.paintComponent(g);
+            new Snapshot(false).render(g2d);
+        } catch (Exception e) {
+            System.err.println("Error in render: " + e.getMessage());
+        }
+    }
 
-            // Create back buffer if needed
-            if (backBuffer == null || backBuffer.getWidth() != getWidth() || backBuffer.getHeight() != getHeight()) {
-                createBackBuffer();
-            }
+    // Pipelined mode: runs on the simulation thread and hands an immutable copy to the renderer
+    @Override
+    public FramePipeline.Snapshot snapshot(int width, int height) {
+        return sceneFinished ? null : new Snapshot(true);
+    }
 
-            if (backBufferGraphics == null)
-                return;
+    // Everything the renderer reads. Copied after a simulation step when pipelined,
+    // a live view of the scene otherwise
+    private final class Snapshot implements FramePipeline.Snapshot {
+        final float time;
+        final float cameraShake;
+        final float alpha;
+        final Color background;
+        final VendingMachine machine;
+        final List<Cloud> clouds;
+        final List<Particle> particles;
+        final List<RainDrop> rainDrops;
+
+        Snapshot(boolean copy) {
+            VendingFallFromSky scene = VendingFallFromSky.this;
+            this.time = scene.time;
+            this.cameraShake = scene.cameraShake;
+            this.alpha = (float) clock.getAlpha();
+            this.background = scene.background;
+
+            if (copy) {
+                this.machine = new VendingMachine(scene.vendingMachine);
+                this.clouds = new ArrayList<>(scene.clouds.size());
+                for (Cloud cloud : scene.clouds) {
+                    this.clouds.add(new Cloud(cloud));
+                }
+                this.particles = new ArrayList<>(scene.particles.size());
+                for (Particle particle : scene.particles) {
+                    this.particles.add(new Particle(particle));
+                }
+                this.rainDrops = new ArrayList<>(scene.rainDrops.size());
+                for (RainDrop drop : scene.rainDrops) {
+                    this.rainDrops.add(new RainDrop(drop));
+                }
+            } else {
+                this.machine = scene.vendingMachine;
+                this.clouds = scene.clouds;
+                this.particles = scene.particles;
+                this.rainDrops = scene.rainDrops;
+            }
+        }
 
+        @Override
+        public void render(Graphics2D g2d) {
             // Clear back buffer
-            backBufferGraphics.setColor(getBackground());
-            backBufferGraphics.fillRect(0, 0, getWidth(), getHeight());
+            g2d.setColor(background);
+            g2d.fillRect(0, 0, WINDOW_WIDTH, WINDOW_HEIGHT);
 
             // Ultra-smooth rendering
-            backBufferGraphics.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
-            backBufferGraphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            g2d.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
 
             // Apply camera shake for impact
+            AffineTransform oldTransform = g2d.getTransform();
             if (cameraShake > 0) {
                 float shakeX = (random.nextFloat() - 0.5f) * cameraShake;
                 float shakeY = (random.nextFloat() - 0.5f) * cameraShake;
-                backBufferGraphics.translate(shakeX, shakeY);
+                g2d.translate(shakeX, shakeY);
             }
 
             // Draw animated gradient sky
-            drawCinematicSky(backBufferGraphics);
+            long mark = allocations.mark();
+            long span = tracer.begin();
+            drawCinematicSky(g2d, time);
+            mark = allocations.charge(AllocationLedger.Subsystem.SKY, mark);
+            span = tracer.end("VendingFallFromSky.render.sky", span);
 
             // Draw atmospheric layers
-            drawBackgroundClouds(backBufferGraphics);
-            drawRain(backBufferGraphics);
-            drawParticles(backBufferGraphics);
+            drawBackgroundClouds(g2d, clouds);
+            mark = allocations.charge(AllocationLedger.Subsystem.CLOUDS, mark);
+            span = tracer.end("VendingFallFromSky.render.clouds", span);
+            drawRain(g2d, rainDrops);
+            mark = allocations.charge(AllocationLedger.Subsystem.WEATHER, mark);
+            span = tracer.end("VendingFallFromSky.render.weather", span);
+            drawParticles(g2d, particles);
+            mark = allocations.charge(AllocationLedger.Subsystem.PARTICLES, mark);
+            span = tracer.end("VendingFallFromSky.render.particles", span);
 
             // Draw ground with perspective - FASTER GROUND APPEARANCE
-            if (vendingMachine.fallProgress > 0.1f) { // Reduced from 0.2f
-                drawPerspectiveGround(backBufferGraphics);
+            if (machine.fallProgress > 0.1f) { // Reduced from 0.2f
+                drawPerspectiveGround(g2d, machine.fallProgress);
             }
+            mark = allocations.charge(AllocationLedger.Subsystem.SKY, mark);
+            span = tracer.end("VendingFallFromSky.render.sky", span);
 
             // Draw main clouds with depth
-            drawMainClouds(backBufferGraphics);
+            drawMainClouds(g2d, clouds);
+            mark = allocations.charge(AllocationLedger.Subsystem.CLOUDS, mark);
+            span = tracer.end("VendingFallFromSky.render.clouds", span);
 
             // Draw the hero - vending machine
-            vendingMachine.draw(backBufferGraphics);
+            machine.draw(g2d, alpha);
+            mark = allocations.charge(AllocationLedger.Subsystem.MACHINE, mark);
+            span = tracer.end("VendingFallFromSky.render.machine", span);
 
             // Draw light rays and god rays
-            drawLightRays(backBufferGraphics);
+            drawLightRays(g2d, machine.fallProgress, time);
 
             // Draw foreground effects
-            drawForegroundEffects(backBufferGraphics);
-
-            // Draw back buffer to screen
-            Graphics2D g2d = (Graphics2D) g;
-            g2d.drawImage(backBuffer, 0, 0, null);
+            drawForegroundEffects(g2d, machine.fallProgress);
+            allocations.charge(AllocationLedger.Subsystem.SKY, mark);
+            tracer.end("VendingFallFromSky.render.sky", span);
 
-        } catch (Exception e) {
-            System.err.println("Error in paintComponent: " + e.getMessage());
+            g2d.setTransform(oldTransform);
         }
     }
 
@@ -264,32 +265,30 @@ public class VendingFallFromSky extends JPanel implements ActionListener {
             completionTimer++;
             if (completionTimer > 10) { // Reduced from 60 - MUCH FASTER TRANSITION
                 System.out.println("to sideview");
-                stopAnimation();
-                transitionToNextScene();
+                finishScene();
             }
         }
     }
 
+    private void finishScene() {
+        if (sceneFinished)
+            return;
+        sceneFinished = true;
+        transitionToNextScene();
+    }
+
     private void transitionToNextScene() {
         try {
-            if (frame != null) {
+            if (host != null) {
                 System.out.println("Starting transition to SideView");
-                // Stop current animation first
-                stopAnimation();
-
-                // Create SideView scene
-                SideView nextScene = new SideView();
-                SideView.setFrame(frame);
 
-                frame.setContentPane(nextScene);
-                frame.revalidate();
-                frame.repaint();
-
-                nextScene.startAnimation();
+                // SideView was built and warmed in the background while this scene played
+                SideView nextScene = nextScenePreload != null ? nextScenePreload.take() : new SideView();
+                host.transitionTo(nextScene, TransitionCompositor.Style.CROSS_FADE, 20);
 
                 System.out.println("Transition complete!");
             } else {
-                System.err.println("Frame reference is null - cannot transition");
+                System.err.println("Scene host is null - cannot transition");
             }
         } catch (Exception e) {
             System.err.println("Could not transition to next scene: " + e.getMessage());
@@ -297,7 +296,7 @@ public class VendingFallFromSky extends JPanel implements ActionListener {
         }
     }
 
-    private void drawCinematicSky(Graphics2D g2d) {
+    private void drawCinematicSky(Graphics2D g2d, float time) {
         // Multi-layer animated gradient - FASTER TIME
         float timeOffset = time * 0.02f; // Increased from 0.005f
 
@@ -327,7 +326,7 @@ public class VendingFallFromSky extends JPanel implements ActionListener {
         g2d.fillRect(0, 0, WINDOW_WIDTH, WINDOW_HEIGHT);
     }
 
-    private void drawBackgroundClouds(Graphics2D g2d) {
+    private void drawBackgroundClouds(Graphics2D g2d, List<Cloud> clouds) {
         for (Cloud cloud : clouds) {
             if (cloud.layer == 2) { // Background clouds (was layer 3)
                 cloud.draw(g2d);
@@ -335,7 +334,7 @@ public class VendingFallFromSky extends JPanel implements ActionListener {
         }
     }
 
-    private void drawMainClouds(Graphics2D g2d) {
+    private void drawMainClouds(Graphics2D g2d, List<Cloud> clouds) {
         // Draw clouds in layers for depth
         for (int layer = 1; layer >= 0; layer--) { // Updated for 2 layers instead of 3
             for (Cloud cloud : clouds) {
@@ -346,9 +345,9 @@ public class VendingFallFromSky extends JPanel implements ActionListener {
         }
     }
 
-    private void drawPerspectiveGround(Graphics2D g2d) {
-        float visibility = Math.min(1.0f, (vendingMachine.fallProgress - 0.1f) / 0.9f); // Faster visibility
-        float groundProgress = Math.min(1.0f, (vendingMachine.fallProgress - 0.2f) / 0.8f); // Faster ground
+    private void drawPerspectiveGround(Graphics2D g2d, float fallProgress) {
+        float visibility = Math.min(1.0f, (fallProgress - 0.1f) / 0.9f); // Faster visibility
+        float groundProgress = Math.min(1.0f, (fallProgress - 0.2f) / 0.8f); // Faster ground
 
         // Ground starts small and expands to fill entire frame
         float maxGroundSize = Math.max(WINDOW_WIDTH, WINDOW_HEIGHT) * 2.5f;
@@ -398,20 +397,20 @@ public class VendingFallFromSky extends JPanel implements ActionListener {
         }
     }
 
-    private void drawRain(Graphics2D g2d) {
+    private void drawRain(Graphics2D g2d, List<RainDrop> rainDrops) {
         for (RainDrop drop : rainDrops) {
             drop.draw(g2d);
         }
     }
 
-    private void drawParticles(Graphics2D g2d) {
+    private void drawParticles(Graphics2D g2d, List<Particle> particles) {
         for (Particle particle : particles) {
             particle.draw(g2d);
         }
     }
 
-    private void drawLightRays(Graphics2D g2d) {
-        if (vendingMachine.fallProgress > 0.2f) { // Reduced from 0.4f
+    private void drawLightRays(Graphics2D g2d, float fallProgress, float time) {
+        if (fallProgress > 0.2f) { // Reduced from 0.4f
             // God rays effect
             Composite originalComposite = g2d.getComposite();
             g2d.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER, 0.1f));
@@ -442,11 +441,11 @@ public class VendingFallFromSky extends JPanel implements ActionListener {
         }
     }
 
-    private void drawForegroundEffects(Graphics2D g2d) {
+    private void drawForegroundEffects(Graphics2D g2d, float fallProgress) {
         Composite originalComposite = g2d.getComposite();
 
         // Lens flare effect - APPEARS EARLIER
-        if (vendingMachine.fallProgress > 0.4f) { // Reduced from 0.7f
+        if (fallProgress > 0.4f) { // Reduced from 0.7f
             g2d.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER, 0.3f));
 
             RadialGradientPaint flare = new RadialGradientPaint(
@@ -482,25 +481,36 @@ public class VendingFallFromSky extends JPanel implements ActionListener {
                 (int) (c1.getAlpha() * (1 - ratio) + c2.getAlpha() * ratio));
     }
 
+    // One fixed 1/60 s simulation step
     @Override
-    public void actionPerformed(ActionEvent e) {
+    public void update() {
         time += 4; // Increased from 1 - MUCH FASTER TIME
+        long mark = allocations.mark();
+        long span = tracer.begin();
 
         // Update vending machine
         vendingMachine.update();
+        mark = allocations.charge(AllocationLedger.Subsystem.MACHINE, mark);
+        span = tracer.end("VendingFallFromSky.update.machine", span);
 
         // Update atmospheric elements
         for (Cloud cloud : clouds) {
             cloud.update(vendingMachine.x, vendingMachine.y, vendingMachine.fallProgress);
         }
+        mark = allocations.charge(AllocationLedger.Subsystem.CLOUDS, mark);
+        span = tracer.end("VendingFallFromSky.update.clouds", span);
 
         for (Particle particle : particles) {
             particle.update();
         }
+        mark = allocations.charge(AllocationLedger.Subsystem.PARTICLES, mark);
+        span = tracer.end("VendingFallFromSky.update.particles", span);
 
         for (RainDrop drop : rainDrops) {
             drop.update();
         }
+        allocations.charge(AllocationLedger.Subsystem.WEATHER, mark);
+        tracer.end("VendingFallFromSky.update.weather", span);
 
         // Camera shake when machine gets close to ground - EARLIER SHAKE
         if (vendingMachine.fallProgress > 0.6f) { // Reduced from 0.8f
@@ -509,8 +519,53 @@ public class VendingFallFromSky extends JPanel implements ActionListener {
 
         // Check for completion and auto-transition
         checkAnimationComplete();
+    }
 
-        repaint();
+    // Paints the detailed cabinet centered at the origin, used to build the mipmap levels
+    private void paintDetailedMachineBody(Graphics2D g2d, float scale) {
+        float width = 90 * scale;
+        float height = 140 * scale;
+
+        // Drop shadow
+        g2d.setColor(new Color(0, 0, 0, (int) (50 * scale)));
+        g2d.fill(new RoundRectangle2D.Float(-width / 2 + 3, -height / 2 + 3, width, height, 12 * scale,
+                12 * scale));
+
+        // Main body with gradient
+        GradientPaint bodyGradient = new GradientPaint(
+                -width / 2, -height / 2, new Color(90, 90, 90),
+                width / 2, height / 2, new Color(45, 45, 45));
+        g2d.setPaint(bodyGradient);
+        g2d.fill(new RoundRectangle2D.Float(-width / 2, -height / 2, width, height, 12 * scale, 12 * scale));
+
+        // Metallic edge highlight
+        g2d.setColor(new Color(150, 150, 150, 180));
+        g2d.setStroke(new BasicStroke(2 * scale, BasicStroke.CAP_ROUND, BasicStroke.JOIN_ROUND));
+        g2d.draw(new RoundRectangle2D.Float(-width / 2, -height / 2, width, height, 12 * scale, 12 * scale));
+
+        // Glass panel
+        g2d.setPaint(new GradientPaint(
+                -width / 3, -height / 3, new Color(70, 130, 180, 200),
+                width / 3, height / 3, new Color(30, 60, 120, 180)));
+        g2d.fill(new RoundRectangle2D.Float(-width * 0.35f, -height * 0.35f, width * 0.7f, height * 0.55f,
+                8 * scale, 8 * scale));
+
+        // Glass shine
+        g2d.setColor(new Color(255, 255, 255, 60));
+        g2d.fill(new RoundRectangle2D.Float(-width * 0.25f, -height * 0.35f, width * 0.15f, height * 0.55f,
+                6 * scale, 6 * scale));
+
+        // Dispenser slot
+        g2d.setColor(new Color(30, 30, 30));
+        g2d.fill(new RoundRectangle2D.Float(-width * 0.25f, height * 0.15f, width * 0.5f, height * 0.1f,
+                5 * scale, 5 * scale));
+
+        // Buttons
+        g2d.setColor(new Color(200, 200, 200));
+        for (int i = 0; i < 3; i++) {
+            g2d.fill(new RoundRectangle2D.Float(width * 0.2f, -height * 0.25f + i * (height * 0.12f),
+                    width * 0.15f, height * 0.08f, 4 * scale, 4 * scale));
+        }
     }
 
     // Cloud class and other classes with FASTER movement speeds
@@ -524,6 +579,22 @@ public class VendingFallFromSky extends JPanel implements ActionListener {
         float driftSpeed;
         float pulsePhase;
 
+        // Render-only copy for pipelined snapshots
+        Cloud(Cloud other) {
+            this.x = other.x;
+            this.y = other.y;
+            this.originalX = other.originalX;
+            this.originalY = other.originalY;
+            this.size = other.size;
+            this.originalSize = other.originalSize;
+            this.opacity = other.opacity;
+            this.disperseAmount = other.disperseAmount;
+            this.isDispersing = other.isDispersing;
+            this.layer = other.layer;
+            this.driftSpeed = other.driftSpeed;
+            this.pulsePhase = other.pulsePhase;
+        }
+
         public Cloud(float x, float y, float size, int layer) {
             this.x = this.originalX = x;
             this.y = this.originalY = y;
@@ -609,6 +680,18 @@ public class VendingFallFromSky extends JPanel implements ActionListener {
             reset();
         }
 
+        // Render-only copy for pipelined snapshots
+        Particle(Particle other) {
+            this.x = other.x;
+            this.y = other.y;
+            this.vx = other.vx;
+            this.vy = other.vy;
+            this.life = other.life;
+            this.maxLife = other.maxLife;
+            this.size = other.size;
+            this.color = other.color;
+        }
+
         private void reset() {
             x = random.nextFloat() * WINDOW_WIDTH * 1.5f;
             y = random.nextFloat() * WINDOW_HEIGHT * 1.5f;
@@ -654,6 +737,15 @@ public class VendingFallFromSky extends JPanel implements ActionListener {
             reset();
         }
 
+        // Render-only copy for pipelined snapshots
+        RainDrop(RainDrop other) {
+            this.x = other.x;
+            this.y = other.y;
+            this.length = other.length;
+            this.speed = other.speed;
+            this.opacity = other.opacity;
+        }
+
         private void reset() {
             x = random.nextFloat() * WINDOW_WIDTH * 1.2f - WINDOW_WIDTH * 0.1f;
             y = -10;
@@ -680,16 +772,33 @@ public class VendingFallFromSky extends JPanel implements ActionListener {
 
     class VendingMachine {
         float x, y;
+        float prevX, prevY, prevRotation;
         float fallProgress = 0;
         float rotation = 0;
         float rotationSpeed = 0.12f; // Increased from 0.03f
 
         public VendingMachine(float x, float y) {
-            this.x = x;
-            this.y = y;
+            this.x = this.prevX = x;
+            this.y = this.prevY = y;
+        }
+
+        // Render-only copy for pipelined snapshots
+        VendingMachine(VendingMachine other) {
+            this.x = other.x;
+            this.y = other.y;
+            this.prevX = other.prevX;
+            this.prevY = other.prevY;
+            this.prevRotation = other.prevRotation;
+            this.fallProgress = other.fallProgress;
+            this.rotation = other.rotation;
+            this.rotationSpeed = other.rotationSpeed;
         }
 
         public void update() {
+            prevX = x;
+            prevY = y;
+            prevRotation = rotation;
+
             fallProgress += 0.06f; // Increased from 0.015f - MUCH FASTER FALL
 
             rotation += rotationSpeed;
@@ -699,7 +808,7 @@ public class VendingFallFromSky extends JPanel implements ActionListener {
             y += (float) Math.cos(fallProgress * Math.PI * 5.2) * 2.0f;
         }
 
-        public void draw(Graphics2D g2d) {
+        public void draw(Graphics2D g2d, float alpha) {
             float scale = 1.2f - (fallProgress * 1.1f);
             if (scale <= 0.05f)
                 scale = 0.05f;
@@ -711,67 +820,36 @@ public class VendingFallFromSky extends JPanel implements ActionListener {
 
             if (fallProgress > 0.15f && fallProgress < 0.9f) { // Earlier shadow appearance
                 g2d.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER, 0.3f));
-                drawVendingMachineBody(g2d, width, height, 3, 5);
+                drawVendingMachineBody(g2d, width, height, 3, 5, alpha);
                 g2d.setComposite(originalComposite);
             }
 
-            drawVendingMachineBody(g2d, width, height, 0, 0);
+            drawVendingMachineBody(g2d, width, height, 0, 0, alpha);
         }
 
-        private void drawVendingMachineBody(Graphics2D g2d, float width, float height, float offsetX, float offsetY) {
+        private void drawVendingMachineBody(Graphics2D g2d, float width, float height, float offsetX, float offsetY,
+                float alpha) {
             float scale = width / 90.0f;
 
-            AffineTransform oldTransform = g2d.getTransform();
-            g2d.translate(x + offsetX, y + offsetY);
-            g2d.rotate(rotation);
+            // Render between the last two steps so the wobble is smooth at any refresh rate
+            float drawX = prevX + (x - prevX) * alpha;
+            float drawY = prevY + (y - prevY) * alpha;
+            float drawRotation = prevRotation + (rotation - prevRotation) * alpha;
 
             if (scale > 0.4f) {
-                // Drop shadow
-                g2d.setColor(new Color(0, 0, 0, (int) (50 * scale)));
-                g2d.fill(new RoundRectangle2D.Float(-width / 2 + 3, -height / 2 + 3, width, height, 12 * scale,
-                        12 * scale));
-
-                // Main body with gradient
-                GradientPaint bodyGradient = new GradientPaint(
-                        -width / 2, -height / 2, new Color(90, 90, 90),
-                        width / 2, height / 2, new Color(45, 45, 45));
-                g2d.setPaint(bodyGradient);
-                g2d.fill(new RoundRectangle2D.Float(-width / 2, -height / 2, width, height, 12 * scale, 12 * scale));
-
-                // Metallic edge highlight
-                g2d.setColor(new Color(150, 150, 150, 180));
-                g2d.setStroke(new BasicStroke(2 * scale, BasicStroke.CAP_ROUND, BasicStroke.JOIN_ROUND));
-                g2d.draw(new RoundRectangle2D.Float(-width / 2, -height / 2, width, height, 12 * scale, 12 * scale));
-
-                // Glass panel
-                g2d.setPaint(new GradientPaint(
-                        -width / 3, -height / 3, new Color(70, 130, 180, 200),
-                        width / 3, height / 3, new Color(30, 60, 120, 180)));
-                g2d.fill(new RoundRectangle2D.Float(-width * 0.35f, -height * 0.35f, width * 0.7f, height * 0.55f,
-                        8 * scale, 8 * scale));
-
-                // Glass shine
-                g2d.setColor(new Color(255, 255, 255, 60));
-                g2d.fill(new RoundRectangle2D.Float(-width * 0.25f, -height * 0.35f, width * 0.15f, height * 0.55f,
-                        6 * scale, 6 * scale));
-
-                // Dispenser slot
-                g2d.setColor(new Color(30, 30, 30));
-                g2d.fill(new RoundRectangle2D.Float(-width * 0.25f, height * 0.15f, width * 0.5f, height * 0.1f,
-                        5 * scale, 5 * scale));
-
-                // Buttons
-                g2d.setColor(new Color(200, 200, 200));
-                for (int i = 0; i < 3; i++) {
-                    g2d.fill(new RoundRectangle2D.Float(width * 0.2f, -height * 0.25f + i * (height * 0.12f),
-                            width * 0.15f, height * 0.08f, 4 * scale, 4 * scale));
-                }
-            } else {
-                // Far away → simplified box
-                g2d.setColor(new Color(60, 60, 60));
-                g2d.fill(new Rectangle2D.Float(-width / 2, -height / 2, width, height));
+                // Detailed cabinet comes from the cached mipmap levels
+                machineSprite.draw(g2d, drawX + offsetX, drawY + offsetY, drawRotation, scale);
+                return;
             }
 
+            AffineTransform oldTransform = g2d.getTransform();
+            g2d.translate(drawX + offsetX, drawY + offsetY);
+            g2d.rotate(drawRotation);
+
+            // Far away → simplified box
+            g2d.setColor(new Color(60, 60, 60));
+            g2d.fill(new Rectangle2D.Float(-width / 2, -height / 2, width, height));
+
             g2d.setTransform(oldTransform);
         }
     }
@@ -0,0 +1,48 @@
+#!/bin/sh
+# taobin.sh - Builds, trains and launches the kiosk with an application class-data-sharing archive
+#
+#   ./taobin.sh build   compile into build/ and package build/taobin.jar
+#   ./taobin.sh train   play the whole show once and dump the loaded classes to build/taobin.jsa
+#   ./taobin.sh run     launch from the jar, mapping the archive when it exists (the default)
+#
+# AppCDS only archives classes that come from jars, hence the jar. Rebuild the archive after every
+# build; a stale one is rejected by the JVM and the app simply starts without it.
+set -e
+
+cd "$(dirname "$0")"
+BUILD=build
+JAR=$BUILD/taobin.jar
+ARCHIVE=$BUILD/taobin.jsa
+MAIN=projectCG.BeforebornTaobin
+# Long enough for every scene and transition to load its classes
+TRAINING_SECONDS=${TAOBIN_TRAINING_SECONDS:-45}
+
+build() {
+    rm -rf "$BUILD/classes"
+    mkdir -p "$BUILD/classes"
+    javac -encoding UTF-8 -d "$BUILD/classes" *.java
+    jar --create --file "$JAR" --main-class "$MAIN" -C "$BUILD/classes" .
+    rm -f "$ARCHIVE"
+}
+
+train() {
+    [ -f "$JAR" ] || build
+    java -XX:ArchiveClassesAtExit="$ARCHIVE" -Dtaobin.trainingSeconds="$TRAINING_SECONDS" \
+        -cp "$JAR" "$MAIN"
+}
+
+run() {
+    [ -f "$JAR" ] || build
+    if [ -f "$ARCHIVE" ]; then
+        exec java -XX:SharedArchiveFile="$ARCHIVE" -Xshare:auto $JAVA_OPTS -cp "$JAR" "$MAIN"
+    fi
+    echo "No CDS archive yet, run './taobin.sh train' for a faster start" >&2
+    exec java $JAVA_OPTS -cp "$JAR" "$MAIN"
+}
+
+case "${1:-run}" in
+    build) build ;;
+    train) train ;;
+    run) run ;;
+    *) echo "Usage: $0 [build|train|run]" >&2; exit 1 ;;
+esac